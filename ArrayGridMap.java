@@ -0,0 +1,38 @@
+//Immutable grid map storing the walkability of every cell in a flat array indexed by y*width+x
+public class ArrayGridMap implements GridMap {
+
+    private final int width;
+    private final int height;
+    private final boolean[] walkable;
+    private final long version = MapVersions.next();
+
+    //Build a map from a walkability array, which is copied so later changes to it don't affect the map
+    public ArrayGridMap(int width, int height, boolean[] walkable) {
+        if(walkable.length != width*height) {
+            throw new IllegalArgumentException("Expected " + (width*height) + " cells, got " + walkable.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.walkable = walkable.clone();
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return x>=0 && x<this.width && y>=0 && y<this.height && this.walkable[y*this.width + x];
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+//Runs many path queries against one map, spread over a pool of worker threads
+//Each worker searches with its own engine (see Graph.findPath), reused for every query it runs, so workers share
+//nothing but the read-only map and throughput grows with the number of cores
+public class BatchSearch implements AutoCloseable {
+
+    //Number of queries handed to a worker at a time
+    private static final int CHUNK_SIZE = 64;
+
+    //Receives results as they complete. Called from the worker threads, possibly several at once
+    public interface ResultListener {
+        void onResult(long index, SearchRequest request, SearchResult result);
+    }
+
+    private final ForkJoinPool pool;
+
+    //Create a batch engine with one worker per available processor
+    public BatchSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchSearch(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    //Run every request, and return the results in the same order as the requests
+    public SearchResult[] searchAll(GridMap map, SearchRequest[] requests) {
+        SearchResult[] results = new SearchResult[requests.length];
+        this.pool.invoke(new RangeTask(map, requests, results, 0, requests.length));
+        return results;
+    }
+
+    //Run every request in a stream, passing each result to the listener as soon as it is ready
+    public void searchAll(GridMap map, Stream<SearchRequest> requests, ResultListener listener) throws InterruptedException {
+        this.searchAll(map, requests.iterator(), listener);
+    }
+
+    //Run every request, passing each result to the listener (along with the request's position) as soon as it is ready
+    //Requests are pulled from the iterator in chunks, and only a few chunks per worker are in flight at any time,
+    //so arbitrarily long request sequences run in bounded memory. Returns once every result has been delivered
+    public void searchAll(GridMap map, Iterator<SearchRequest> requests, final ResultListener listener) throws InterruptedException {
+        final Semaphore inFlight = new Semaphore(2*this.pool.getParallelism());
+        final Phaser running = new Phaser(1);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+        long index = 0;
+
+        while(requests.hasNext() && failure.get() == null) {
+            //Pull the next chunk of requests off the iterator
+            final SearchRequest[] chunk = new SearchRequest[CHUNK_SIZE];
+            int count = 0;
+            while(count < CHUNK_SIZE && requests.hasNext()) {
+                chunk[count++] = requests.next();
+            }
+            final int chunkSize = count;
+            final long firstIndex = index;
+            index += count;
+
+            //Wait for room, then hand the chunk to a worker
+            inFlight.acquire();
+            running.register();
+            this.pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for(int i=0; i<chunkSize && failure.get() == null; i++) {
+                            listener.onResult(firstIndex + i, chunk[i], Graph.findPath(map, chunk[i]));
+                        }
+                    }
+                    catch(RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally {
+                        inFlight.release();
+                        running.arriveAndDeregister();
+                    }
+                }
+            });
+        }
+
+        running.arriveAndAwaitAdvance();
+        if(failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    //Stop the worker threads once queued work is done
+    @Override
+    public void close() {
+        this.pool.shutdown();
+    }
+
+    //Runs the requests in [from, to), splitting the range in half until it is small enough for one worker
+    private static class RangeTask extends RecursiveAction {
+
+        private final GridMap map;
+        private final SearchRequest[] requests;
+        private final SearchResult[] results;
+        private final int from;
+        private final int to;
+
+        RangeTask(GridMap map, SearchRequest[] requests, SearchResult[] results, int from, int to) {
+            this.map = map;
+            this.requests = requests;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from <= CHUNK_SIZE) {
+                for(int i=this.from; i<this.to; i++) {
+                    this.results[i] = Graph.findPath(this.map, this.requests[i]);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new RangeTask(this.map, this.requests, this.results, this.from, middle),
+                    new RangeTask(this.map, this.requests, this.results, middle, this.to));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Bidirectional A* and Dijkstra, growing one frontier from the source and one from the goal until they meet
+//A* uses the average of the two directions' heuristics as its potential, which keeps both frontiers consistent so
+//that every node is expanded at most once in each direction. Keys are doubled to keep that average in integers
+//With parallel frontiers, the backward frontier runs on the common fork/join pool while the calling thread runs the
+//forward one. The frontiers only share their distance labels and the best meeting found so far, through atomics
+//Like SearchEngine, an instance is reused between queries on grids of one size, and is not thread-safe itself
+final class BidirectionalSearch {
+
+    //Distance label of nodes a frontier hasn't reached
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    //Key of a frontier with an empty open list. Larger than any real key, with room to add two of them
+    private static final long EXHAUSTED = Long.MAX_VALUE / 4;
+
+    private final int width;
+    private final Frontier forward;
+    private final Frontier backward;
+
+    //Cheapest path found so far, packed as (cost << 32) | meeting node so that both can be lowered in one step
+    private final AtomicLong best = new AtomicLong();
+
+    //Set when either frontier proves that the best path can't be improved
+    private volatile boolean done;
+
+    BidirectionalSearch(int width, int height) {
+        this.width = width;
+        this.forward = new Frontier(width*height);
+        this.backward = new Frontier(width*height);
+    }
+
+    //Find a path for a request whose algorithm is Graph.BIDIRECTIONAL_A_STAR or Graph.BIDIRECTIONAL_DIJKSTRA
+    SearchResult search(GridMap map, SearchRequest request) {
+        int source = request.getSourceY()*this.width + request.getSourceX();
+        int goal = request.getGoalY()*this.width + request.getGoalX();
+        boolean aStar = request.getAlgorithm() == Graph.BIDIRECTIONAL_A_STAR;
+        boolean parallel = request.isParallelFrontiers();
+        IntList visited = request.isRecordVisited() ? new IntList() : null;
+
+        this.done = false;
+        this.best.set(source == goal ? source : ((long)UNREACHED << 32));
+        this.forward.reset(map, request, aStar, source, goal, this.backward, visited);
+        this.backward.reset(map, request, aStar, goal, source, this.forward,
+                parallel && visited != null ? new IntList() : visited);
+        try {
+            if(parallel) {
+                ForkJoinTask<?> task = ForkJoinPool.commonPool().submit(new Runnable() {
+                    public void run() {
+                        BidirectionalSearch.this.run(BidirectionalSearch.this.backward);
+                    }
+                });
+                try {
+                    this.run(this.forward);
+                }
+                finally {
+                    this.done = true;
+                    task.join();
+                }
+            }
+            else {
+                this.alternate();
+            }
+            return this.buildResult(visited, parallel ? this.backward.visited : null);
+        }
+        finally {
+            this.forward.clearLabels();
+            this.backward.clearLabels();
+        }
+    }
+
+    //Collect the statistics of the last search, adding up those of the two frontiers. The peak open size is the sum
+    //of each frontier's peak, so it can be larger than the most nodes that were really open at once
+    SearchStats statsOf(SearchResult result, long wallNanos, long cpuNanos) {
+        return new SearchStats(result.getNodesExpanded(),
+                this.forward.open.getAddCount() + this.backward.open.getAddCount(),
+                this.forward.open.getDecreaseKeyCount() + this.backward.open.getDecreaseKeyCount(),
+                this.forward.open.getPeakSize() + this.backward.open.getPeakSize(), wallNanos, cpuNanos);
+    }
+
+    //Expand both frontiers on this thread, always growing the one with the smaller open list
+    private void alternate() {
+        while(!this.canStop()) {
+            Frontier next = this.forward.open.size() <= this.backward.open.size() ? this.forward : this.backward;
+            next.expandNext();
+        }
+    }
+
+    //Expand one frontier until the best path is proved optimal, from either side
+    private void run(Frontier frontier) {
+        while(!this.done) {
+            if(this.canStop()) {
+                this.done = true;
+                return;
+            }
+            frontier.expandNext();
+        }
+    }
+
+    //No path through an unexpanded node can beat the best one once the lowest keys of the two frontiers add up to
+    //at least twice its cost. A frontier's lowest key never goes down, so reading a stale one only delays stopping
+    private boolean canStop() {
+        return this.forward.topKey + this.backward.topKey >= 2*(this.best.get() >>> 32);
+    }
+
+    //Lower the best path to one through the given node, if that is cheaper
+    private void offerMeeting(int node, int cost) {
+        long candidate = ((long)cost << 32) | node;
+        long current = this.best.get();
+        while(candidate < current && !this.best.compareAndSet(current, candidate)) {
+            current = this.best.get();
+        }
+    }
+
+    //Join the two halves of the best path at their meeting node
+    private SearchResult buildResult(IntList visited, IntList backwardVisited) {
+        if(backwardVisited != null) {
+            for(int i=0; i<backwardVisited.size(); i++) {
+                visited.add(backwardVisited.get(i));
+            }
+        }
+        int[] visitedNodes = visited != null ? visited.toArray() : new int[0];
+        int nodesExpanded = this.forward.nodesExpanded + this.backward.nodesExpanded;
+        long best = this.best.get();
+        int cost = (int)(best >>> 32);
+        if(cost == UNREACHED) {
+            return new SearchResult(this.width, new int[0], visitedNodes, -1, nodesExpanded);
+        }
+        int meeting = (int)best;
+
+        int length = 1;
+        for(int curNode = meeting; this.forward.parent[curNode] != -1; curNode = this.forward.parent[curNode]) {
+            length++;
+        }
+        int meetingIndex = length - 1;
+        for(int curNode = meeting; this.backward.parent[curNode] != -1; curNode = this.backward.parent[curNode]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int i = meetingIndex;
+        for(int curNode = meeting; curNode != -1; curNode = this.forward.parent[curNode]) {
+            path[i--] = curNode;
+        }
+        i = meetingIndex;
+        for(int curNode = meeting; this.backward.parent[curNode] != -1; ) {
+            curNode = this.backward.parent[curNode];
+            path[++i] = curNode;
+        }
+        return new SearchResult(this.width, path, visitedNodes, cost, nodesExpanded);
+    }
+
+    //Search state of one direction. Only its own thread touches it, apart from the distance labels and the top key,
+    //which the other frontier reads to spot meetings and decide when to stop
+    private final class Frontier {
+
+        private final AtomicIntegerArray distances;
+        private final int[] parent;
+        private final BitSet closed;
+        private final IndexedMinHeap open;
+
+        //Nodes that were given a label, so they can be reset to UNREACHED without clearing the whole array
+        private final IntList labelled = new IntList();
+
+        //Lowest key in the open list, or EXHAUSTED once it is empty
+        private volatile long topKey;
+
+        private GridMap map;
+        private int movement;
+        private int allowedMoves;
+        private boolean aStar;
+        private Heuristic heuristic;
+        private int originX;
+        private int originY;
+        private int targetX;
+        private int targetY;
+        private Frontier other;
+        private IntList visited;
+        private SearchObserver observer;
+        private int nodesExpanded;
+
+        Frontier(int size) {
+            this.distances = new AtomicIntegerArray(size);
+            this.parent = new int[size];
+            this.closed = new BitSet(size);
+            this.open = new IndexedMinHeap(size);
+            for(int i=0; i<size; i++) {
+                this.distances.lazySet(i, UNREACHED);
+            }
+        }
+
+        //Seed the open list with origin, searching towards target
+        void reset(GridMap map, SearchRequest request, boolean aStar, int origin, int target, Frontier other, IntList visited) {
+            this.map = map;
+            this.movement = request.getMovement();
+            this.allowedMoves = Movement.allowedMoves(this.movement);
+            this.aStar = aStar;
+            this.heuristic = request.getHeuristic();
+            this.observer = request.getObserver();
+            this.originX = origin % BidirectionalSearch.this.width;
+            this.originY = origin / BidirectionalSearch.this.width;
+            this.targetX = target % BidirectionalSearch.this.width;
+            this.targetY = target / BidirectionalSearch.this.width;
+            this.other = other;
+            this.visited = visited;
+            this.nodesExpanded = 0;
+            this.open.clear();
+            this.closed.clear();
+            this.distances.set(origin, 0);
+            this.labelled.add(origin);
+            this.parent[origin] = -1;
+            this.open.add(origin, this.key(origin, 0));
+            this.topKey = this.open.peekKey();
+        }
+
+        //Put every label back to UNREACHED for the next query
+        void clearLabels() {
+            for(int i=0; i<this.labelled.size(); i++) {
+                this.distances.lazySet(this.labelled.get(i), UNREACHED);
+            }
+            this.labelled.clear();
+        }
+
+        //Expand the open node with the lowest key
+        void expandNext() {
+            if(this.open.isEmpty()) {
+                return;
+            }
+            int width = BidirectionalSearch.this.width;
+            int curNode = this.open.poll();
+            this.closed.set(curNode);
+            this.nodesExpanded++;
+            if(this.visited != null) {
+                this.visited.add(curNode);
+            }
+            int x = curNode % width;
+            int y = curNode / width;
+            if(this.observer != null) {
+                this.observer.nodeExpanded(x, y);
+            }
+            int distance = this.distances.get(curNode);
+
+            //Moves are symmetric, so the backward frontier can follow the same moves as the forward one
+            int moves = Neighbours.legalMoves(this.map.neighbourBits(x, y)) & this.allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int n = (y + Neighbours.DY[d])*width + x + Neighbours.DX[d];
+                if(this.closed.get(n)) {
+                    continue;
+                }
+                int newDistance = distance + Movement.cost(this.movement, d);
+                int oldDistance = this.distances.get(n);
+                if(newDistance >= oldDistance) {
+                    continue;
+                }
+                //Publish the label before reading the other side's, so that of two frontiers labelling the same
+                //node at once, at least one sees the other's label and records the meeting
+                this.distances.set(n, newDistance);
+                this.parent[n] = curNode;
+                if(oldDistance == UNREACHED) {
+                    this.labelled.add(n);
+                }
+                if(this.open.contains(n)) {
+                    this.open.decreaseKey(n, this.key(n, newDistance));
+                }
+                else {
+                    this.open.add(n, this.key(n, newDistance));
+                }
+                int otherDistance = this.other.distances.get(n);
+                if(otherDistance != UNREACHED) {
+                    BidirectionalSearch.this.offerMeeting(n, newDistance + otherDistance);
+                }
+            }
+            this.topKey = this.open.isEmpty() ? EXHAUSTED : this.open.peekKey();
+        }
+
+        //Doubled distance plus the difference between the heuristic towards the target and the one back to the origin
+        private long key(int node, int distance) {
+            if(!this.aStar) {
+                return 2L*distance;
+            }
+            int x = node % BidirectionalSearch.this.width;
+            int y = node / BidirectionalSearch.this.width;
+            if(this.heuristic != null) {
+                return 2L*distance + this.heuristic.estimate(x, y, this.targetX, this.targetY)
+                        - this.heuristic.estimate(x, y, this.originX, this.originY);
+            }
+            return 2L*distance + Movement.heuristic(this.movement, this.targetX - x, this.targetY - y)
+                    - Movement.heuristic(this.movement, this.originX - x, this.originY - y);
+        }
+    }
+}
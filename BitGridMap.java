@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+//Compact grid map that stores walkability as one bit per cell
+//Each row is padded to a whole number of 64-bit words, so row y occupies words[y*wordsPerRow] onwards, with cell x in
+//bit (x & 63) of word (x >>> 6). Bits past the end of a row are always 0
+//This takes 1/32 of the memory of an int per cell, and lets a search read several neighbours with one word operation
+//Reading is thread-safe as long as nobody calls setWalkable at the same time. Use copy() to hand out a stable snapshot
+public class BitGridMap implements GridMap {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    //Stamp of the current contents, replaced on every change
+    private long version = MapVersions.next();
+
+    //Create a map with every cell walkable, or every cell blocked
+    public BitGridMap(int width, int height, boolean walkable) {
+        if(width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid map size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        long wordCount = (long)this.wordsPerRow * height;
+        if(wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map of " + width + "x" + height + " is too large");
+        }
+        this.words = new long[(int)wordCount];
+        if(walkable) {
+            for(int y=0; y<height; y++) {
+                this.fillRow(y);
+            }
+        }
+    }
+
+    //Create a map that takes over an array of row words laid out as described above
+    BitGridMap(int width, int height, long[] words) {
+        this(width, height, words, MapVersions.next());
+    }
+
+    private BitGridMap(int width, int height, long[] words, long version) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        if(words.length != this.wordsPerRow * height) {
+            throw new IllegalArgumentException("Expected " + (this.wordsPerRow * height) + " words, got " + words.length);
+        }
+        this.words = words;
+        this.version = version;
+    }
+
+    //Copy the walkability of any other map
+    public static BitGridMap copyOf(GridMap map) {
+        BitGridMap copy = new BitGridMap(map.getWidth(), map.getHeight(), false);
+        for(int y=0; y<copy.height; y++) {
+            for(int k=0; k<copy.wordsPerRow; k++) {
+                copy.words[y*copy.wordsPerRow + k] = map.walkableBits(k << 6, y) & copy.rowMask(k);
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Number of 64-bit words used by each row
+    public int getWordsPerRow() {
+        return this.wordsPerRow;
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            return false;
+        }
+        return (this.words[y*this.wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    //Make (x, y) walkable or blocked
+    public void setWalkable(int x, int y, boolean walkable) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            throw new IndexOutOfBoundsException("(" + x + "," + y + ") is not on the map");
+        }
+        int i = y*this.wordsPerRow + (x >>> 6);
+        long word = walkable ? this.words[i] | (1L << x) : this.words[i] & ~(1L << x);
+        if(word != this.words[i]) {
+            this.words[i] = word;
+            this.version = MapVersions.next();
+        }
+    }
+
+    //Make every cell walkable or blocked
+    public void fill(boolean walkable) {
+        this.version = MapVersions.next();
+        if(walkable) {
+            for(int y=0; y<this.height; y++) {
+                this.fillRow(y);
+            }
+        }
+        else {
+            Arrays.fill(this.words, 0L);
+        }
+    }
+
+    @Override
+    public long walkableBits(int x, int y) {
+        if(y<0 || y>=this.height || x>=this.width || x<=-64) {
+            return 0;
+        }
+        int base = y*this.wordsPerRow;
+        if(x < 0) {
+            return this.words[base] << -x;
+        }
+        int k = x >>> 6;
+        int offset = x & 63;
+        long bits = this.words[base + k] >>> offset;
+        if(offset != 0 && k+1 < this.wordsPerRow) {
+            bits |= this.words[base + k + 1] << (64 - offset);
+        }
+        return bits;
+    }
+
+    @Override
+    public int neighbourBits(int x, int y) {
+        //Read the 3 cells (x-1..x+1) of the rows above, through and below the cell
+        int above = (int)this.walkableBits(x-1, y-1) & 7;
+        int row = (int)this.walkableBits(x-1, y) & 7;
+        int below = (int)this.walkableBits(x-1, y+1) & 7;
+        return Neighbours.fromRows(above, row, below);
+    }
+
+    //Return an independent copy of this map. It keeps this map's version until one of them changes
+    public BitGridMap copy() {
+        return new BitGridMap(this.width, this.height, this.words.clone(), this.version);
+    }
+
+    //Return a map sharing this map's words but carrying another version, for snapshots known to hold the same cells
+    //as some other map. This map must not be changed afterwards
+    BitGridMap withVersion(long version) {
+        return new BitGridMap(this.width, this.height, this.words, version);
+    }
+
+    //Number of bytes used to store the cells
+    public long getMemoryUsage() {
+        return (long)this.words.length * 8;
+    }
+
+    //Give package classes (such as map file writers) direct access to the row words
+    long[] words() {
+        return this.words;
+    }
+
+    //Set every bit of row y that corresponds to a cell
+    private void fillRow(int y) {
+        for(int k=0; k<this.wordsPerRow; k++) {
+            this.words[y*this.wordsPerRow + k] = this.rowMask(k);
+        }
+    }
+
+    //Mask of the bits of the k-th word of a row that correspond to cells
+    private long rowMask(int k) {
+        int cells = this.width - (k << 6);
+        return cells >= 64 ? -1L : (1L << cells) - 1;
+    }
+}
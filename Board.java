@@ -4,19 +4,23 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.image.BufferedImage;
 
 import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 import javax.swing.*;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
+import java.io.OutputStream;
 
 public class Board extends JPanel implements ActionListener {
 
@@ -26,6 +30,10 @@ public class Board extends JPanel implements ActionListener {
     private final int DOT_SIZE = 10;
     private final int ALL_DOTS = (B_WIDTH*B_HEIGHT)/(DOT_SIZE*DOT_SIZE);
 
+    //How often the replay of a search advances, and how many of its events are painted each time
+    private final int FRAME_DELAY = 16;
+    private final int EVENTS_PER_FRAME = 5;
+
     //Integer constants used to record the state of each block in the game board (enums, effectively)
     private final int EMPTY = 0;
     private final int WALL = 1;
@@ -33,28 +41,49 @@ public class Board extends JPanel implements ActionListener {
     private final int VISITED = 3;
     private final int PATH = 4;
     private final int SOURCE = 5;
+    private final int MUD = 6;
+
+    //Cost of entering a block of mud, relative to an empty block
+    private final int MUD_COST = 5;
 
     //Integer constants used to determine the program's operational mode
     public static final int WALL_PAINT_MODE = 10;
     public static final int ERASE_MODE = 11;
     public static final int SOURCE_PLACE_MODE = 12;
     public static final int GOAL_PLACE_MODE = 13;
+    public static final int MUD_PAINT_MODE = 14;
 
-    //Records the state of each block in the game board
+    //Records the state of each block in the game board, for display
     private int[][] gameBoard = new int[B_HEIGHT/DOT_SIZE][B_WIDTH/DOT_SIZE];
 
+    //The board as drawn. A block is drawn into it as soon as its state changes, and only that block's rectangle of the
+    //screen is marked for repainting, so a repaint just copies the changed part of the image
+    private final BufferedImage canvas = new BufferedImage(B_WIDTH, B_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+    //Records which blocks are walls, one bit per block. Display states (VISITED, PATH etc.) never end up in here
+    //Searches get snapshots of it, so walls can keep being painted while they run
+    private final ChunkedGridMap walls = new ChunkedGridMap(B_WIDTH/DOT_SIZE, B_HEIGHT/DOT_SIZE, true);
+
+    //Connected components of the walkable blocks, updated with every wall so searches can skip unreachable goals
+    private ConnectedComponents components = ConnectedComponents.build(this.walls);
+
+    //Cost of entering each block, indexed by y*width+x, and how many blocks cost more than 1
+    private int[] costs = new int[(B_WIDTH/DOT_SIZE)*(B_HEIGHT/DOT_SIZE)];
+    private int mudCount = 0;
+
     //Keep track of where the source and goal nodes are
     private int sourceX;
     private int sourceY;
     private int goalX;
     private int goalY;
 
-    //Keep track of whether pathfinding has taken place or not, and the visited nodes (if it has)
-    private boolean pathComplete = false;
-    private ArrayList<int[]> visited;
-    private ArrayList<int[]> path;
-    private int curVisitedNode = 0;
-    private int curPathNode = 0;
+    //Progress of the last search, streamed in while the search runs (null if no search has been started)
+    private SearchEventBuffer replay;
+    private boolean replayFinished = false;
+
+    //Last path node painted during the replay, or -1 before the first
+    private int lastPathX = -1;
+    private int lastPathY = -1;
 
     public Board() {
         //Set right click listener, black background, focusable property and preferred size
@@ -77,19 +106,22 @@ public class Board extends JPanel implements ActionListener {
         this.goalY = (B_HEIGHT/DOT_SIZE)-4;
         gameBoard[this.sourceY][this.sourceX] = SOURCE;
         gameBoard[this.goalY][this.goalX] = GOAL;
+        Arrays.fill(this.costs, 1);
+        this.redrawCanvas();
 
         //Set mouse motion listener (for painting walls)
         this.addMouseMotionListener(new WallPaintListener());
 
         //Set timer (for updating display in real-time when painting nodes visited during search)
-        int delay = 3;
+        //Each tick paints several events of the search, and repaints only the blocks they changed
         ActionListener nodePainter = new ActionListener() {
             public void actionPerformed(ActionEvent evt) {
-                Runner.paintNextNode();
-                Runner.refresh();
+                for(int i=0; i<EVENTS_PER_FRAME; i++) {
+                    Runner.paintNextNode();
+                }
             }
         };
-        new Timer(delay, nodePainter).start();
+        new Timer(FRAME_DELAY, nodePainter).start();
     }
 
     public int getWidth() {
@@ -100,26 +132,39 @@ public class Board extends JPanel implements ActionListener {
         return this.B_HEIGHT;
     }
 
-    //Paints the next visited node (if appropriate) or path node (if all visited nodes are already painted)
+    //Paints the next event of the search: a visited node, then the path nodes once every visited node is painted
     public void paintNextNode() {
-        if(pathComplete) {
-            if(curVisitedNode <= visited.size()-1) {
+        if(this.replay != null && !this.replayFinished) {
+            long event = this.replay.poll();
+            if(event == SearchEventBuffer.EMPTY) {
+                //The search hasn't got any further yet
+                return;
+            }
+            int kind = SearchEventBuffer.kind(event);
+            if(kind == SearchEventBuffer.EXPANDED) {
                 //Paint next visited node
-                int[] nextNode = this.visited.get(curVisitedNode++);
-                this.visitSquare(nextNode[0], nextNode[1]);
-                Runner.refresh();
+                this.visitSquare(SearchEventBuffer.x(event), SearchEventBuffer.y(event));
             }
-            else if(curPathNode <= path.size()-1) {
-                //Paint next path node
-                int[] nextNode = this.path.get(curPathNode++);
-                this.markPath(nextNode[0], nextNode[1]);
-                Runner.refresh();
+            else if(kind == SearchEventBuffer.PATH) {
+                //Paint next path node, and the line to it from the last one (any-angle paths only send their turns)
+                int x = SearchEventBuffer.x(event);
+                int y = SearchEventBuffer.y(event);
+                if(this.lastPathX != -1) {
+                    int steps = Math.max(Math.abs(x - this.lastPathX), Math.abs(y - this.lastPathY));
+                    for(int i=1; i<steps; i++) {
+                        this.markPath(this.lastPathX + Math.round((float)(x - this.lastPathX)*i/steps),
+                                this.lastPathY + Math.round((float)(y - this.lastPathY)*i/steps));
+                    }
+                }
+                this.markPath(x, y);
+                this.lastPathX = x;
+                this.lastPathY = y;
             }
             else {
                 //Paint current source and goal nodes
-                this.gameBoard[this.goalY][this.goalX] = GOAL;
-                this.gameBoard[this.sourceY][this.sourceX] = SOURCE;
-                Runner.refresh();
+                this.setBlock(this.goalX, this.goalY, GOAL);
+                this.setBlock(this.sourceX, this.sourceY, SOURCE);
+                this.replayFinished = true;
             }
         }
     }
@@ -144,50 +189,114 @@ public class Board extends JPanel implements ActionListener {
         return this.gameBoard;
     }
 
+    //Returns a snapshot of the board's walls (and mud, if there is any) that searches can read without touching the
+    //board (or Swing). Snapshots share the parts of the board that haven't changed since the last one
+    public GridMap getGridMap() {
+        if(this.mudCount == 0) {
+            return this.walls.snapshot();
+        }
+        return new WeightedGridMap(this.walls.snapshot(), this.costs);
+    }
+
+    //Returns a snapshot of the components of the walkable blocks, matching the walls of getGridMap
+    public ConnectedComponents getConnectedComponents() {
+        if(!this.components.isExact()) {
+            this.components.refresh();
+        }
+        return this.components.copy();
+    }
+
+    //Write the board's walls to a stream in the binary map format, one row at a time
+    public void exportMap(OutputStream out) throws IOException {
+        MapFiles.write(this.walls, out);
+    }
+
+    //Replace the board's walls with those of a map. Cells past the edge of the board are dropped, missing cells are
+    //left empty, and the source and goal stay where they are
+    public void loadMap(GridMap map) {
+        this.resetBoard(true);
+        for(int i=0; i<this.gameBoard.length && i<map.getHeight(); i++) {
+            for(int j=0; j<this.gameBoard[i].length && j<map.getWidth(); j++) {
+                if(!map.isWalkable(j, i) && this.gameBoard[i][j] == EMPTY) {
+                    this.setBlock(j, i, WALL);
+                    this.walls.setWalkable(j, i, false);
+                }
+            }
+        }
+        this.components = ConnectedComponents.build(this.walls);
+    }
+
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
         this.doDrawing(g);
     }
 
-    //Draw the board by looking at the states in the gameBoard object
+    //Draw the board by copying the part of the canvas that needs repainting
     private void doDrawing(Graphics g) {
-        //Loop through gameBoard object
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) {
+            g.drawImage(this.canvas, 0, 0, null);
+            return;
+        }
+        g.drawImage(this.canvas, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+    }
+
+    //Change the state of block (x, y), draw it onto the canvas and mark it for repainting
+    private void setBlock(int x, int y, int state) {
+        this.gameBoard[y][x] = state;
+        this.drawBlock(x, y);
+        this.repaint(x*DOT_SIZE, y*DOT_SIZE, DOT_SIZE, DOT_SIZE);
+    }
+
+    //Draw every block onto the canvas, after changes to the whole board
+    private void redrawCanvas() {
         for(int i=0; i<gameBoard.length; i++) {
             for(int j=0; j<gameBoard[i].length; j++) {
-                //Look at state
-                int state = gameBoard[i][j];
-                //Determine which color to paint square depending on state
-                switch(state) {
-                    //Empty sqaure
-                    case EMPTY:
-                        g.setColor(Color.black);
-                        break;
-                    //Square is a wall
-                    case WALL:
-                        g.setColor(Color.blue);
-                        break;
-                    //Square is a goal
-                    case GOAL:
-                        g.setColor(Color.orange);
-                        break;
-                    //Square is a visited node
-                    case VISITED:
-                        g.setColor(Color.lightGray);
-                        break;
-                    //Square is a node along the final path
-                    case PATH:
-                        g.setColor(Color.red);
-                        break;
-                    //Square is the source node
-                    case SOURCE:
-                        g.setColor(Color.green);
-                        break;
-                }
-                //Paint square
-                g.fillRect(j*DOT_SIZE,i*DOT_SIZE,DOT_SIZE,DOT_SIZE);
+                this.drawBlock(j, i);
             }
         }
+        this.repaint();
+    }
+
+    //Draw block (x, y) onto the canvas in the colour of its state
+    private void drawBlock(int x, int y) {
+        Graphics g = this.canvas.getGraphics();
+        //Determine which color to paint square depending on state
+        switch(gameBoard[y][x]) {
+            //Empty sqaure
+            case EMPTY:
+                g.setColor(Color.black);
+                break;
+            //Square is a wall
+            case WALL:
+                g.setColor(Color.blue);
+                break;
+            //Square is a goal
+            case GOAL:
+                g.setColor(Color.orange);
+                break;
+            //Square is a visited node
+            case VISITED:
+                g.setColor(Color.lightGray);
+                break;
+            //Square is a node along the final path
+            case PATH:
+                g.setColor(Color.red);
+                break;
+            //Square is the source node
+            case SOURCE:
+                g.setColor(Color.green);
+                break;
+            //Square is mud, which is slow to cross
+            case MUD:
+                g.setColor(new Color(120, 80, 40));
+                break;
+        }
+        //Paint square
+        g.fillRect(x*DOT_SIZE, y*DOT_SIZE, DOT_SIZE, DOT_SIZE);
+        g.dispose();
     }
 
     @Override
@@ -214,77 +323,132 @@ public class Board extends JPanel implements ActionListener {
     //Given an x-coordinate and y-coordinate for a mouse event, set a wall there
     public void setWall(int x, int y) {
         if(this.valid(x, y)) {
-            this.gameBoard[y/DOT_SIZE][x/DOT_SIZE] = WALL;
+            this.setCost(x/DOT_SIZE, y/DOT_SIZE, 1);
+            this.setBlock(x/DOT_SIZE, y/DOT_SIZE, WALL);
+            this.walls.setWalkable(x/DOT_SIZE, y/DOT_SIZE, false);
+            this.components.update(this.walls, x/DOT_SIZE, y/DOT_SIZE);
         }
     }
 
     //Given an x-coordinate and y-coordinate for a mouse event, make that square empty
     public void removeWall(int x, int y) {
         if(this.valid(x, y)) {
-            if(this.gameBoard[y/DOT_SIZE][x/DOT_SIZE] == WALL) {
-                this.gameBoard[y/DOT_SIZE][x/DOT_SIZE] = EMPTY;
+            int state = this.gameBoard[y/DOT_SIZE][x/DOT_SIZE];
+            if(state == WALL || state == MUD) {
+                this.setCost(x/DOT_SIZE, y/DOT_SIZE, 1);
+                this.setBlock(x/DOT_SIZE, y/DOT_SIZE, EMPTY);
+                this.walls.setWalkable(x/DOT_SIZE, y/DOT_SIZE, true);
+                this.components.update(this.walls, x/DOT_SIZE, y/DOT_SIZE);
             }
         }
     }
 
+    //Given an x-coordinate and y-coordinate for a mouse event, turn that square (if it is empty) into mud
+    public void setMud(int x, int y) {
+        if(this.valid(x, y) && this.gameBoard[y/DOT_SIZE][x/DOT_SIZE] == EMPTY) {
+            this.setCost(x/DOT_SIZE, y/DOT_SIZE, MUD_COST);
+            this.setBlock(x/DOT_SIZE, y/DOT_SIZE, MUD);
+        }
+    }
+
+    //Change the cost of entering block (x, y), keeping count of the blocks that cost more than 1
+    private void setCost(int x, int y, int cost) {
+        int i = y*(B_WIDTH/DOT_SIZE) + x;
+        if(this.costs[i] > 1) {
+            this.mudCount--;
+        }
+        if(cost > 1) {
+            this.mudCount++;
+        }
+        this.costs[i] = cost;
+    }
+
+    //Display state of block (x, y) when nothing is on it: mud, or empty
+    private int groundOf(int x, int y) {
+        return this.costs[y*(B_WIDTH/DOT_SIZE) + x] > 1 ? MUD : EMPTY;
+    }
+
+    //Make block (x, y) walkable, as the source and goal erase any wall they are placed on. Mud is kept under them
+    private void clearWall(int x, int y) {
+        if(!this.walls.isWalkable(x, y)) {
+            this.walls.setWalkable(x, y, true);
+            this.components.update(this.walls, x, y);
+        }
+    }
+
     //Given an x,y coordinate pair, place the source there
     public void placeSource(int x, int y) {
         if(this.valid(x, y)) {
-            this.gameBoard[this.sourceY][this.sourceX] = EMPTY;
+            this.setBlock(this.sourceX, this.sourceY, this.groundOf(this.sourceX, this.sourceY));
             this.sourceY = y/DOT_SIZE;
             this.sourceX = x/DOT_SIZE;
-            this.gameBoard[this.sourceY][this.sourceX] = SOURCE;
+            this.clearWall(this.sourceX, this.sourceY);
+            this.setBlock(this.sourceX, this.sourceY, SOURCE);
         }
     }
 
     //Given an x,y coordinate pair, place the goal there
     public void placeGoal(int x, int y) {
         if(this.valid(x, y)) {
-            this.gameBoard[this.goalY][this.goalX] = EMPTY;
+            this.setBlock(this.goalX, this.goalY, this.groundOf(this.goalX, this.goalY));
             this.goalY = y/DOT_SIZE;
             this.goalX = x/DOT_SIZE;
-            this.gameBoard[this.goalY][this.goalX] = GOAL;
+            this.clearWall(this.goalX, this.goalY);
+            this.setBlock(this.goalX, this.goalY, GOAL);
         }
     }
 
     //Given an x,y coordinate pair, make that square visited
     public void visitSquare(int x, int y) {
-        this.gameBoard[y][x] = VISITED;
+        this.setBlock(x, y, VISITED);
     }
 
     //Given an x,y coordinate pair, mark that square as part of the final path
     public void markPath(int x, int y) {
-        this.gameBoard[y][x] = PATH;
+        this.setBlock(x, y, PATH);
     }
 
-    //Record visited nodes, so that they can be displayed
-    public void recordVisitedNodesAndPath(ArrayList<int[]> visitedNodes, ArrayList<int[]> path) {
-        this.visited = visitedNodes;
-        this.path = path;
-        this.pathComplete = true;
+    //Display the progress of a search as its events come in. Only as many events as the buffer holds are kept, and
+    //the search waits for the display to catch up once it is full
+    public void replay(SearchEventBuffer events) {
+        if(this.replay != null) {
+            this.replay.close();
+        }
+        this.replay = events;
+        this.replayFinished = false;
+        this.lastPathX = -1;
     }
 
     //Resets board (so that pathfinding can be done again)
     public void resetBoard(boolean resetWalls) {
-        //Reset info about visited nodes
-        this.visited = null;
-        this.path = null;
-        this.pathComplete = false;
-        this.curVisitedNode = 0;
-        this.curPathNode = 0;
+        //Stop replaying the last search, which also cancels it if it is still running
+        if(this.replay != null) {
+            this.replay.close();
+        }
+        this.replay = null;
+        this.replayFinished = false;
+        this.lastPathX = -1;
 
         /*Reset board data*/
         //Initialize the game board to all empty blocks, leaving walls as they are
         for(int i=0; i<this.gameBoard.length; i++) {
             for(int j=0; j<this.gameBoard[i].length; j++) {
                 if(this.gameBoard[i][j] != WALL || resetWalls)
-                    this.gameBoard[i][j] = EMPTY;
+                    this.gameBoard[i][j] = resetWalls ? EMPTY : this.groundOf(j, i);
             }
         }
 
+        if(resetWalls) {
+            this.walls.fill(true);
+            this.components = ConnectedComponents.build(this.walls);
+            Arrays.fill(this.costs, 1);
+            this.mudCount = 0;
+        }
+
         //Place source and goal
         gameBoard[this.sourceY][this.sourceX] = SOURCE;
         gameBoard[this.goalY][this.goalX] = GOAL;
+        this.redrawCanvas();
     }
 }
 
@@ -293,12 +457,16 @@ class RightClickMenu extends JPopupMenu {
     //Declare menu items
     private JMenuItem startPathFinding;
     private JMenuItem startWallPainting;
+    private JMenuItem startMudPainting;
     private JMenuItem startWallErasing;
     private JMenuItem moveSource;
     private JMenuItem moveGoal;
 
     private JMenu resetBoard;
     private JMenu algorithmSelection;
+    private JMenu movementSelection;
+    private JMenuItem saveMap;
+    private JMenuItem loadMap;
 
     //Create and add all menu items
     public RightClickMenu() {
@@ -313,7 +481,12 @@ class RightClickMenu extends JPopupMenu {
         this.startWallPainting.addActionListener(new MenuItemListener());
         this.add(startWallPainting);
 
-        //Third menu item allows user to erase walls
+        //Next to it, the user can paint mud, which can be crossed but costs more to do so
+        this.startMudPainting = new JMenuItem("Paint Mud");
+        this.startMudPainting.addActionListener(new MenuItemListener());
+        this.add(startMudPainting);
+
+        //Third menu item allows user to erase walls (and mud)
         this.startWallErasing = new JMenuItem("Erase Walls");
         this.startWallErasing.addActionListener(new MenuItemListener());
         this.add(startWallErasing);
@@ -346,7 +519,43 @@ class RightClickMenu extends JPopupMenu {
         JMenuItem dijkstra = new JMenuItem("Dijkstra's");
         dijkstra.addActionListener(new MenuItemListener());
         this.algorithmSelection.add(dijkstra);
+        JMenuItem jumpPoint = new JMenuItem("Jump Point Search");
+        jumpPoint.addActionListener(new MenuItemListener());
+        this.algorithmSelection.add(jumpPoint);
+        JMenuItem bidirectionalAStar = new JMenuItem("Bidirectional A*");
+        bidirectionalAStar.addActionListener(new MenuItemListener());
+        this.algorithmSelection.add(bidirectionalAStar);
+        JMenuItem bidirectionalDijkstra = new JMenuItem("Bidirectional Dijkstra's");
+        bidirectionalDijkstra.addActionListener(new MenuItemListener());
+        this.algorithmSelection.add(bidirectionalDijkstra);
+        JMenuItem thetaStar = new JMenuItem("Theta*");
+        thetaStar.addActionListener(new MenuItemListener());
+        this.algorithmSelection.add(thetaStar);
+        JMenuItem lazyThetaStar = new JMenuItem("Lazy Theta*");
+        lazyThetaStar.addActionListener(new MenuItemListener());
+        this.algorithmSelection.add(lazyThetaStar);
         this.add(algorithmSelection);
+
+        //8th item is a sub-menu for choosing which moves are allowed
+        this.movementSelection = new JMenu("Movement");
+        JMenuItem fourConnected = new JMenuItem("4-Connected");
+        fourConnected.addActionListener(new MenuItemListener());
+        this.movementSelection.add(fourConnected);
+        JMenuItem octile = new JMenuItem("8-Connected (Octile)");
+        octile.addActionListener(new MenuItemListener());
+        this.movementSelection.add(octile);
+        JMenuItem chebyshev = new JMenuItem("8-Connected (Chebyshev)");
+        chebyshev.addActionListener(new MenuItemListener());
+        this.movementSelection.add(chebyshev);
+        this.add(movementSelection);
+
+        //9th and 10th items save the walls to a map file, and load them from one
+        this.saveMap = new JMenuItem("Save Map");
+        this.saveMap.addActionListener(new MenuItemListener());
+        this.add(saveMap);
+        this.loadMap = new JMenuItem("Load Map");
+        this.loadMap.addActionListener(new MenuItemListener());
+        this.add(loadMap);
     }
 }
 
@@ -364,6 +573,10 @@ class MenuItemListener extends AbstractAction {
         else if(text.equals("Paint Walls")) {
             Runner.setPaintMode();
         }
+        //User wants to enter mud paint mode
+        else if(text.equals("Paint Mud")) {
+            Runner.setMudPaintMode();
+        }
         //User wants to enter eraser mode (to remove walls)
         else if(text.equals("Erase Walls")) {
             Runner.setEraseMode();
@@ -386,11 +599,49 @@ class MenuItemListener extends AbstractAction {
         }
         //User wants to use A* algorithm
         else if(text.equals("A*")) {
-            Graph.ALGORITHM = Graph.A_STAR;
+            Runner.setAlgorithm(Graph.A_STAR);
         }
         //User wants to use Dijkstra's algorithm
         else if(text.equals("Dijkstra's")) {
-            Graph.ALGORITHM = Graph.DIJKSTRA;
+            Runner.setAlgorithm(Graph.DIJKSTRA);
+        }
+        //User wants to use Jump Point Search
+        else if(text.equals("Jump Point Search")) {
+            Runner.setAlgorithm(Graph.JUMP_POINT);
+        }
+        //User wants to search from both ends at once
+        else if(text.equals("Bidirectional A*")) {
+            Runner.setAlgorithm(Graph.BIDIRECTIONAL_A_STAR);
+        }
+        else if(text.equals("Bidirectional Dijkstra's")) {
+            Runner.setAlgorithm(Graph.BIDIRECTIONAL_DIJKSTRA);
+        }
+        //User wants paths that cut across open ground at any angle
+        else if(text.equals("Theta*")) {
+            Runner.setAlgorithm(Graph.THETA_STAR);
+        }
+        else if(text.equals("Lazy Theta*")) {
+            Runner.setAlgorithm(Graph.LAZY_THETA_STAR);
+        }
+        //User wants to only allow orthogonal moves
+        else if(text.equals("4-Connected")) {
+            Runner.setMovement(Graph.FOUR_CONNECTED);
+        }
+        //User wants diagonal moves to cost sqrt 2
+        else if(text.equals("8-Connected (Octile)")) {
+            Runner.setMovement(Graph.OCTILE);
+        }
+        //User wants diagonal moves to cost the same as orthogonal moves
+        else if(text.equals("8-Connected (Chebyshev)")) {
+            Runner.setMovement(Graph.CHEBYSHEV);
+        }
+        //User wants to save the walls to a file
+        else if(text.equals("Save Map")) {
+            Runner.saveMap();
+        }
+        //User wants to load walls from a file
+        else if(text.equals("Load Map")) {
+            Runner.loadMap();
         }
     }
 }
@@ -425,22 +676,22 @@ class WallPaintListener extends MouseMotionAdapter {
         //User is trying to paint walls
         if(Runner.getUserMode() == Board.WALL_PAINT_MODE) {
             Runner.setWall(e.getX(), e.getY());
-            Runner.refresh();
+        }
+        //User is trying to paint mud
+        else if(Runner.getUserMode() == Board.MUD_PAINT_MODE) {
+            Runner.setMud(e.getX(), e.getY());
         }
         //User is trying to erase walls
         else if(Runner.getUserMode() == Board.ERASE_MODE) {
             Runner.removeWall(e.getX(), e.getY());
-            Runner.refresh();
         }
         //User is trying to place source
         else if(Runner.getUserMode() == Board.SOURCE_PLACE_MODE) {
             Runner.placeSource(e.getX(), e.getY());
-            Runner.refresh();
         }
         //User is trying to place goal
         else if(Runner.getUserMode() == Board.GOAL_PLACE_MODE) {
             Runner.placeGoal(e.getX(), e.getY());
-            Runner.refresh();
         }
     }
 }
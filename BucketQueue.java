@@ -0,0 +1,161 @@
+import java.util.Arrays;
+
+//Bucket queue (Dial's algorithm) over primitive node ids in the range [0, capacity), for searches whose keys never
+//fall below the last key polled and never run more than a fixed span above it, such as Dijkstra's algorithm with
+//integer move costs of at most that span
+//Keys live in a ring of span+1 (rounded up to a power of two) buckets, each a doubly linked list threaded through
+//per-node arrays. Adding, decreasing a key and removing are O(1), and polling only walks forward over empty buckets,
+//which is O(1) amortised because the smallest key never goes back
+final class BucketQueue implements OpenList {
+
+    //First node of each bucket's list, or -1 if the bucket is empty
+    private final int[] heads;
+    private final int mask;
+
+    //List links and key of every node, with a key of -1 for nodes that are not queued
+    private final int[] next;
+    private final int[] prev;
+    private final int[] keys;
+
+    //Smallest key that can still be queued. Every queued key lies in [cursor, cursor + heads.length)
+    private int cursor;
+    private int size;
+
+    //Operation counts since the last clear, for search statistics
+    private int adds;
+    private int decreases;
+    private int peakSize;
+
+    //Create a queue for node ids below capacity, whose keys run at most span above the last key polled
+    BucketQueue(int capacity, int span) {
+        if(span < 0 || span >= 1 << 30) {
+            throw new IllegalArgumentException("Invalid span " + span);
+        }
+        this.heads = new int[Integer.highestOneBit(Math.max(span, 1)) << 1];
+        this.mask = this.heads.length - 1;
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.keys = new int[capacity];
+        Arrays.fill(this.heads, -1);
+        Arrays.fill(this.keys, -1);
+    }
+
+    //Largest distance a key may lie above the last key polled
+    int getSpan() {
+        return this.heads.length - 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public boolean contains(int node) {
+        return this.keys[node] != -1;
+    }
+
+    @Override
+    public void add(int node, long key) {
+        //The first key after a clear sets where the window starts. Later ones can't go below the last key polled, even
+        //once the queue has run empty, as nodes still being relaxed may have keys anywhere above it
+        if(this.adds == 0) {
+            this.cursor = (int)key;
+        }
+        this.link(node, this.checkKey(key));
+        this.size++;
+        this.adds++;
+        if(this.size > this.peakSize) {
+            this.peakSize = this.size;
+        }
+    }
+
+    @Override
+    public void decreaseKey(int node, long key) {
+        int newKey = this.checkKey(key);
+        this.unlink(node);
+        this.link(node, newKey);
+        this.decreases++;
+    }
+
+    @Override
+    public int poll() {
+        while(this.heads[this.cursor & this.mask] == -1) {
+            this.cursor++;
+        }
+        int node = this.heads[this.cursor & this.mask];
+        this.unlink(node);
+        this.keys[node] = -1;
+        this.size--;
+        return node;
+    }
+
+    //Empty the queue and its operation counts. Only the nodes still queued are reset, so this is O(size + span)
+    //rather than O(capacity)
+    @Override
+    public void clear() {
+        for(int b=0; b<this.heads.length; b++) {
+            for(int node = this.heads[b]; node != -1; node = this.next[node]) {
+                this.keys[node] = -1;
+            }
+            this.heads[b] = -1;
+        }
+        this.cursor = 0;
+        this.size = 0;
+        this.adds = 0;
+        this.decreases = 0;
+        this.peakSize = 0;
+    }
+
+    @Override
+    public int getAddCount() {
+        return this.adds;
+    }
+
+    @Override
+    public int getDecreaseKeyCount() {
+        return this.decreases;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return this.peakSize;
+    }
+
+    //Throw an exception if a key falls outside the window the ring of buckets can hold
+    private int checkKey(long key) {
+        if(key < this.cursor || key - this.cursor > this.mask) {
+            throw new IllegalStateException("Key " + key + " outside of [" + this.cursor + ", " +
+                    (this.cursor + this.mask) + "]");
+        }
+        return (int)key;
+    }
+
+    //Put a node at the front of the bucket for key
+    private void link(int node, int key) {
+        int bucket = key & this.mask;
+        int head = this.heads[bucket];
+        this.keys[node] = key;
+        this.prev[node] = -1;
+        this.next[node] = head;
+        if(head != -1) {
+            this.prev[head] = node;
+        }
+        this.heads[bucket] = node;
+    }
+
+    //Take a queued node out of its bucket's list, leaving its key in place
+    private void unlink(int node) {
+        int before = this.prev[node];
+        int after = this.next[node];
+        if(before == -1) {
+            this.heads[this.keys[node] & this.mask] = after;
+        }
+        else {
+            this.next[before] = after;
+        }
+        if(after != -1) {
+            this.prev[after] = before;
+        }
+    }
+}
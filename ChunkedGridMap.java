@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+//Editable grid map that hands out immutable, versioned snapshots of itself (see MapSnapshot)
+//Cells are stored in chunks laid out as described in MapSnapshot. Taking a snapshot marks every chunk as shared, and
+//the first change to a shared chunk copies it (copy-on-write), so edits never reach a snapshot already handed out.
+//An edit costs at most one chunk copy of 512 bytes, and a snapshot a copy of the chunk table, however large the map
+//Edits and snapshots must come from one thread at a time (the board makes both on the event thread). The snapshots
+//themselves can be searched from any number of threads while editing goes on
+public final class ChunkedGridMap implements GridMap {
+
+    private final int width;
+    private final int height;
+    private final int chunksPerRow;
+    private final long[][] chunks;
+
+    //Whether each chunk belongs to this map alone, and can be written in place
+    private final boolean[] owned;
+
+    //Stamp of the current contents, replaced on every change
+    private long version = MapVersions.next();
+
+    //Last snapshot taken, handed out again as long as nothing changes
+    private MapSnapshot snapshot;
+
+    //Create a map with every cell walkable, or every cell blocked
+    public ChunkedGridMap(int width, int height, boolean walkable) {
+        if(width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid map size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.chunksPerRow = (width + 63) >>> 6;
+        long chunkCount = (long)this.chunksPerRow * ((height + 63) >>> 6);
+        if(chunkCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map of " + width + "x" + height + " is too large");
+        }
+        this.chunks = new long[(int)chunkCount][];
+        this.owned = new boolean[(int)chunkCount];
+        for(int c=0; c<this.chunks.length; c++) {
+            this.chunks[c] = new long[MapSnapshot.CHUNK_SIZE];
+            this.owned[c] = true;
+        }
+        if(walkable) {
+            this.fill(true);
+        }
+    }
+
+    //Copy the walkability of any other map
+    public static ChunkedGridMap copyOf(GridMap map) {
+        ChunkedGridMap copy = new ChunkedGridMap(map.getWidth(), map.getHeight(), false);
+        for(int y=0; y<copy.height; y++) {
+            for(int k=0; k<copy.chunksPerRow; k++) {
+                copy.chunks[(y >>> 6)*copy.chunksPerRow + k][y & 63] = map.walkableBits(k << 6, y) & copy.rowMask(k);
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return MapSnapshot.isWalkable(this.chunks, this.chunksPerRow, this.width, this.height, x, y);
+    }
+
+    @Override
+    public long walkableBits(int x, int y) {
+        return MapSnapshot.walkableBits(this.chunks, this.chunksPerRow, this.width, this.height, x, y);
+    }
+
+    @Override
+    public int neighbourBits(int x, int y) {
+        return MapSnapshot.neighbourBits(this.chunks, this.chunksPerRow, this.width, this.height, x, y);
+    }
+
+    //Make (x, y) walkable or blocked
+    public void setWalkable(int x, int y, boolean walkable) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            throw new IndexOutOfBoundsException("(" + x + "," + y + ") is not on the map");
+        }
+        int c = (y >>> 6)*this.chunksPerRow + (x >>> 6);
+        long word = this.chunks[c][y & 63];
+        long changed = walkable ? word | (1L << x) : word & ~(1L << x);
+        if(changed != word) {
+            this.writableChunk(c)[y & 63] = changed;
+            this.version = MapVersions.next();
+        }
+    }
+
+    //Make every cell walkable or blocked. Chunks are replaced rather than copied, so snapshots keep the old ones
+    public void fill(boolean walkable) {
+        this.version = MapVersions.next();
+        for(int c=0; c<this.chunks.length; c++) {
+            long[] chunk = this.owned[c] ? this.chunks[c] : new long[MapSnapshot.CHUNK_SIZE];
+            Arrays.fill(chunk, 0L);
+            if(walkable) {
+                int k = c % this.chunksPerRow;
+                int rows = Math.min(MapSnapshot.CHUNK_SIZE, this.height - (c / this.chunksPerRow)*MapSnapshot.CHUNK_SIZE);
+                Arrays.fill(chunk, 0, rows, this.rowMask(k));
+            }
+            this.chunks[c] = chunk;
+            this.owned[c] = true;
+        }
+    }
+
+    //Return an immutable snapshot of the current cells, sharing every chunk with the previous snapshot that hasn't
+    //changed since. If nothing changed at all, the previous snapshot itself is returned
+    public MapSnapshot snapshot() {
+        if(this.snapshot == null || this.snapshot.getVersion() != this.version) {
+            this.snapshot = new MapSnapshot(this.width, this.height, this.chunks.clone(), this.version);
+            Arrays.fill(this.owned, false);
+        }
+        return this.snapshot;
+    }
+
+    //Number of bytes used by this map's own chunks, leaving out those only kept alive by snapshots
+    public long getMemoryUsage() {
+        return (long)this.chunks.length * (8*MapSnapshot.CHUNK_SIZE + 8);
+    }
+
+    //Return chunk c, first copying it if a snapshot shares it
+    private long[] writableChunk(int c) {
+        if(!this.owned[c]) {
+            this.chunks[c] = this.chunks[c].clone();
+            this.owned[c] = true;
+        }
+        return this.chunks[c];
+    }
+
+    //Mask of the bits of the k-th word of a row that correspond to cells
+    private long rowMask(int k) {
+        int cells = this.width - (k << 6);
+        return cells >= 64 ? -1L : (1L << cells) - 1;
+    }
+}
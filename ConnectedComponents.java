@@ -0,0 +1,243 @@
+import java.util.Arrays;
+
+//Labelling of a map's walkable cells into connected components, so that a query between two components can be answered
+//without searching (see SearchRequest.withComponents)
+//Diagonal moves may not cut corners, so cells joined by a diagonal move are always joined through an orthogonal
+//neighbour too, and the components are the same for every movement mode
+//Components are kept in a union-find forest over the cells, linked by size so every tree stays O(log n) deep. Opening a
+//cell (update after a wall is removed) merges it with its neighbours in near-constant time. Blocking a cell can split
+//its component, which union-find can't undo: if the cells around it don't show that its neighbours stay joined, the
+//labelling is marked inexact, and may report cells as connected when they no longer are until refresh() runs. It never
+//reports connected cells as disconnected
+//Reading is thread-safe as long as nobody updates the labelling at the same time. Use copy() to hand out a stable snapshot
+public final class ConnectedComponents {
+
+    //Offsets of the 8 cells around a cell, going round clockwise from north. Even positions are the orthogonal ones
+    private static final int[] RING_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] RING_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private final int width;
+    private final int height;
+
+    //Forest node of every cell, or -1 for blocked cells. A cell that gets blocked leaves its node behind in the forest,
+    //as other nodes may still link through it, and gets a new node if it is opened again
+    private final int[] nodes;
+
+    //Parent of every forest node (roots are their own parent) and size of every root's tree
+    private int[] parent;
+    private int[] size;
+    private int nodeCount;
+
+    private boolean exact;
+    private long mapVersion;
+
+    private ConnectedComponents(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.nodes = new int[width*height];
+        this.parent = new int[width*height];
+        this.size = new int[width*height];
+    }
+
+    //Label the components of a map
+    public static ConnectedComponents build(GridMap map) {
+        int width = map.getWidth();
+        int height = map.getHeight();
+        ConnectedComponents components = new ConnectedComponents(width, height);
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                components.nodes[y*width + x] = map.isWalkable(x, y) ? y*width + x : -1;
+            }
+        }
+        components.relabel();
+        components.mapVersion = map.getVersion();
+        return components;
+    }
+
+    //Return an independent copy of this labelling
+    public ConnectedComponents copy() {
+        ConnectedComponents copy = new ConnectedComponents(this.width, this.height);
+        System.arraycopy(this.nodes, 0, copy.nodes, 0, this.nodes.length);
+        copy.parent = Arrays.copyOf(this.parent, this.parent.length);
+        copy.size = Arrays.copyOf(this.size, this.size.length);
+        copy.nodeCount = this.nodeCount;
+        copy.exact = this.exact;
+        copy.mapVersion = this.mapVersion;
+        return copy;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Version of the map as of the last build or update
+    public long getMapVersion() {
+        return this.mapVersion;
+    }
+
+    //Check whether every pair of cells reported as connected really is
+    public boolean isExact() {
+        return this.exact;
+    }
+
+    //Check whether (x0, y0) and (x1, y1) lie in the same component. Blocked cells and cells off the map are in none,
+    //apart from a cell being connected to itself
+    public boolean isConnected(int x0, int y0, int x1, int y1) {
+        if(x0 == x1 && y0 == y1) {
+            return true;
+        }
+        int a = this.nodeAt(x0, y0);
+        int b = this.nodeAt(x1, y1);
+        return a != -1 && b != -1 && this.root(a) == this.root(b);
+    }
+
+    //Bring the labelling up to date after cell (x, y) of the map it was built from changed walkability
+    public void update(GridMap map, int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            throw new IndexOutOfBoundsException("(" + x + "," + y + ") is not on the map");
+        }
+        this.mapVersion = map.getVersion();
+        int cell = y*this.width + x;
+        boolean walkable = map.isWalkable(x, y);
+        if(walkable == (this.nodes[cell] != -1)) {
+            return;
+        }
+        if(!walkable) {
+            if(this.mightSplit(x, y)) {
+                this.exact = false;
+            }
+            this.nodes[cell] = -1;
+            return;
+        }
+        if(this.nodeCount == this.parent.length) {
+            //Too many nodes left behind by blocked cells: start again from a fresh forest
+            this.nodes[cell] = cell;
+            this.relabel();
+            return;
+        }
+        int node = this.nodeCount++;
+        this.parent[node] = node;
+        this.size[node] = 1;
+        this.nodes[cell] = node;
+        for(int d=0; d<8; d+=2) {
+            int neighbour = this.nodeAt(x + RING_X[d], y + RING_Y[d]);
+            if(neighbour != -1) {
+                this.union(node, neighbour);
+            }
+        }
+    }
+
+    //Label the components again from scratch, which makes the labelling exact
+    public void refresh() {
+        this.relabel();
+    }
+
+    //Rebuild the forest from the current walkability of the cells, with one node per cell and every tree one level deep
+    private void relabel() {
+        int cells = this.width*this.height;
+        for(int cell=0; cell<cells; cell++) {
+            if(this.nodes[cell] != -1) {
+                this.nodes[cell] = cell;
+                this.parent[cell] = cell;
+                this.size[cell] = 1;
+            }
+        }
+        for(int y=0; y<this.height; y++) {
+            for(int x=0; x<this.width; x++) {
+                int cell = y*this.width + x;
+                if(this.nodes[cell] == -1) {
+                    continue;
+                }
+                if(x > 0 && this.nodes[cell-1] != -1) {
+                    this.union(cell, cell-1);
+                }
+                if(y > 0 && this.nodes[cell-this.width] != -1) {
+                    this.union(cell, cell-this.width);
+                }
+            }
+        }
+        for(int cell=0; cell<cells; cell++) {
+            if(this.nodes[cell] != -1) {
+                this.parent[cell] = this.root(cell);
+            }
+        }
+        //Blocked cells leave unused nodes behind, so allow twice as many nodes as cells before relabelling
+        if(this.parent.length < 2*cells) {
+            this.parent = Arrays.copyOf(this.parent, 2*cells);
+            this.size = Arrays.copyOf(this.size, 2*cells);
+        }
+        this.nodeCount = cells;
+        this.exact = true;
+    }
+
+    //Check whether blocking (x, y) could disconnect its walkable orthogonal neighbours from each other
+    //Neighbours on one unbroken run of walkable cells around (x, y) stay joined through that run. Otherwise they might
+    //only have been joined through (x, y), and telling would take a search
+    private boolean mightSplit(int x, int y) {
+        int ring = 0;
+        for(int i=0; i<8; i++) {
+            if(this.nodeAt(x + RING_X[i], y + RING_Y[i]) != -1) {
+                ring |= 1 << i;
+            }
+        }
+        if(ring == 0xFF) {
+            return false;
+        }
+        //Go round once from a blocked cell, counting the runs that hold an orthogonal neighbour
+        int start = Integer.numberOfTrailingZeros(~ring);
+        int runs = 0;
+        boolean inRun = false;
+        boolean runHasOrthogonal = false;
+        for(int k=1; k<=8; k++) {
+            int i = (start + k) & 7;
+            if((ring & (1 << i)) != 0) {
+                inRun = true;
+                runHasOrthogonal |= (i & 1) == 0;
+            }
+            else if(inRun) {
+                if(runHasOrthogonal) {
+                    runs++;
+                }
+                inRun = false;
+                runHasOrthogonal = false;
+            }
+        }
+        return runs > 1;
+    }
+
+    //Forest node of (x, y), or -1 if the cell is blocked or off the map
+    private int nodeAt(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            return -1;
+        }
+        return this.nodes[y*this.width + x];
+    }
+
+    //Root of a node's tree. Paths are not compressed, so that reading never writes
+    private int root(int node) {
+        while(this.parent[node] != node) {
+            node = this.parent[node];
+        }
+        return node;
+    }
+
+    //Join the trees of two nodes, hanging the smaller under the larger
+    private void union(int a, int b) {
+        a = this.root(a);
+        b = this.root(b);
+        if(a == b) {
+            return;
+        }
+        if(this.size[a] < this.size[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        this.parent[b] = a;
+        this.size[a] += this.size[b];
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+//Offline preprocessing for ContractionHierarchy
+//Walkable cells become nodes, joined by an edge for every legal move. Nodes are contracted one at a time, least
+//important first: removing a node v from the graph keeps every shortest path through it by adding a shortcut u-w
+//(with v as its middle) for each pair of remaining neighbours whose shortest path went through v. A short local
+//Dijkstra search (the witness search) skips the shortcuts that another path already matches
+//A node's importance is twice its edge difference (shortcuts added minus edges removed), plus the number of its
+//neighbours already contracted and its level (one above the highest of them), which spread contraction evenly over the
+//map and keep the hierarchy shallow. Importances are updated lazily: the node on top of
+//the queue is re-evaluated, and only contracted if it is still the least important
+//When contracted, the edges a node still has all lead to nodes contracted later, and become its upward edges
+final class ContractionBuilder {
+
+    //Witness searches give up after settling this many nodes, and a shortcut is added as if no witness existed
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int nodeCount;
+
+    //Edges of every node that hasn't been contracted yet, as (target, cost, middle) triples. Middle is -1 for an
+    //original move, and the contracted node a shortcut replaces otherwise. There is at most one edge per pair of nodes
+    private final IntList[] edges;
+
+    //Upward edges of every contracted node, as (target, cost, middle) triples
+    private final IntList[] upward;
+
+    //Number of contracted neighbours of every node, and one more than the highest level among them
+    private final int[] contractedNeighbours;
+    private final int[] levels;
+
+    //Witness search state, reset after every search through the touched list
+    private final int[] witnessDistances;
+    private final boolean[] witnessTargets;
+    private final IndexedMinHeap witnessOpen;
+    private final IntList touched = new IntList();
+
+    ContractionBuilder(int nodeCount) {
+        this.nodeCount = nodeCount;
+        this.edges = new IntList[nodeCount];
+        this.upward = new IntList[nodeCount];
+        for(int n=0; n<nodeCount; n++) {
+            this.edges[n] = new IntList(24);
+        }
+        this.contractedNeighbours = new int[nodeCount];
+        this.levels = new int[nodeCount];
+        this.witnessDistances = new int[nodeCount];
+        this.witnessTargets = new boolean[nodeCount];
+        Arrays.fill(this.witnessDistances, UNREACHED);
+        this.witnessOpen = new IndexedMinHeap(nodeCount);
+    }
+
+    //Add an original edge in both directions
+    void addEdge(int a, int b, int cost) {
+        this.connect(a, b, cost, -1);
+        this.connect(b, a, cost, -1);
+    }
+
+    //Contract every node, then return the upward edges of each node
+    IntList[] contract() {
+        IndexedMinHeap queue = new IndexedMinHeap(this.nodeCount);
+        for(int n=0; n<this.nodeCount; n++) {
+            queue.add(n, this.importance(n));
+        }
+        while(!queue.isEmpty()) {
+            int node = queue.poll();
+            //Lazy update: contract the node only if it is still the least important one
+            long importance = this.importance(node);
+            if(!queue.isEmpty() && importance > queue.peekKey()) {
+                queue.add(node, importance);
+                continue;
+            }
+            this.contractNode(node);
+            IntList nodeEdges = this.upward[node];
+            for(int i=0; i<nodeEdges.size(); i+=3) {
+                int neighbour = nodeEdges.get(i);
+                this.contractedNeighbours[neighbour]++;
+                this.levels[neighbour] = Math.max(this.levels[neighbour], this.levels[node] + 1);
+                queue.update(neighbour, this.importance(neighbour));
+            }
+        }
+        return this.upward;
+    }
+
+    //Importance of contracting a node now
+    private long importance(int node) {
+        IntList nodeEdges = this.edges[node];
+        int added = this.addShortcuts(node, false);
+        return 2*(added - nodeEdges.size()/3) + this.contractedNeighbours[node] + this.levels[node];
+    }
+
+    //Remove a node from the graph, adding the shortcuts it needs, and keep its remaining edges as its upward edges
+    private void contractNode(int node) {
+        this.addShortcuts(node, true);
+        IntList nodeEdges = this.edges[node];
+        for(int i=0; i<nodeEdges.size(); i+=3) {
+            this.disconnect(nodeEdges.get(i), node);
+        }
+        this.upward[node] = nodeEdges;
+        this.edges[node] = null;
+    }
+
+    //Count the shortcuts contracting a node needs, adding them to the graph if add is set
+    private int addShortcuts(int node, boolean add) {
+        IntList nodeEdges = this.edges[node];
+        int count = 0;
+        for(int i=0; i<nodeEdges.size(); i+=3) {
+            int from = nodeEdges.get(i);
+            int fromCost = nodeEdges.get(i+1);
+            //Each pair of neighbours is checked once, by searching from the first of them far enough to rule out a
+            //shortcut to any later one
+            int limit = 0;
+            int targets = 0;
+            for(int j=i+3; j<nodeEdges.size(); j+=3) {
+                limit = Math.max(limit, fromCost + nodeEdges.get(j+1));
+                this.witnessTargets[nodeEdges.get(j)] = true;
+                targets++;
+            }
+            if(targets == 0) {
+                break;
+            }
+            this.witnessSearch(from, node, limit, targets);
+            for(int j=i+3; j<nodeEdges.size(); j+=3) {
+                int to = nodeEdges.get(j);
+                this.witnessTargets[to] = false;
+                int viaCost = fromCost + nodeEdges.get(j+1);
+                if(this.witnessDistances[to] <= viaCost) {
+                    continue;
+                }
+                count++;
+                if(add) {
+                    this.connect(from, to, viaCost, node);
+                    this.connect(to, from, viaCost, node);
+                }
+            }
+            this.clearWitnessSearch();
+        }
+        return count;
+    }
+
+    //Dijkstra from source over the remaining graph without the node being contracted, stopping once every target is
+    //settled, or past the cost limit or the settle limit
+    private void witnessSearch(int source, int skipped, int limit, int targets) {
+        this.witnessDistances[source] = 0;
+        this.touched.add(source);
+        this.witnessOpen.add(source, 0);
+        int settled = 0;
+        while(!this.witnessOpen.isEmpty() && settled < WITNESS_SETTLE_LIMIT && targets > 0) {
+            if(this.witnessOpen.peekKey() > limit) {
+                break;
+            }
+            int node = this.witnessOpen.poll();
+            settled++;
+            if(this.witnessTargets[node]) {
+                targets--;
+            }
+            IntList nodeEdges = this.edges[node];
+            for(int i=0; i<nodeEdges.size(); i+=3) {
+                int target = nodeEdges.get(i);
+                if(target == skipped) {
+                    continue;
+                }
+                int distance = this.witnessDistances[node] + nodeEdges.get(i+1);
+                if(distance >= this.witnessDistances[target]) {
+                    continue;
+                }
+                if(this.witnessDistances[target] == UNREACHED) {
+                    this.touched.add(target);
+                    this.witnessOpen.add(target, distance);
+                }
+                else {
+                    this.witnessOpen.decreaseKey(target, distance);
+                }
+                this.witnessDistances[target] = distance;
+            }
+        }
+    }
+
+    private void clearWitnessSearch() {
+        for(int i=0; i<this.touched.size(); i++) {
+            this.witnessDistances[this.touched.get(i)] = UNREACHED;
+        }
+        this.touched.clear();
+        this.witnessOpen.clear();
+    }
+
+    //Add an edge from a to b, or lower the cost of the existing one
+    private void connect(int a, int b, int cost, int middle) {
+        IntList nodeEdges = this.edges[a];
+        for(int i=0; i<nodeEdges.size(); i+=3) {
+            if(nodeEdges.get(i) == b) {
+                if(cost < nodeEdges.get(i+1)) {
+                    nodeEdges.set(i+1, cost);
+                    nodeEdges.set(i+2, middle);
+                }
+                return;
+            }
+        }
+        nodeEdges.add(b);
+        nodeEdges.add(cost);
+        nodeEdges.add(middle);
+    }
+
+    //Remove the edge from a to b
+    private void disconnect(int a, int b) {
+        IntList nodeEdges = this.edges[a];
+        for(int i=0; i<nodeEdges.size(); i+=3) {
+            if(nodeEdges.get(i) == b) {
+                int last = nodeEdges.size() - 3;
+                nodeEdges.set(i, nodeEdges.get(last));
+                nodeEdges.set(i+1, nodeEdges.get(last+1));
+                nodeEdges.set(i+2, nodeEdges.get(last+2));
+                nodeEdges.truncate(last);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,447 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+//Contraction hierarchy of a map's grid graph, for maps whose walls don't change
+//Preprocessing (see ContractionBuilder) orders the walkable cells by importance and adds shortcut edges, so that
+//every shortest path can be found by only ever moving up the order. A query runs Dijkstra's algorithm upwards from
+//the source and upwards from the goal at once, over edges that skip most of the grid, and settles a few hundred nodes
+//where a grid search settles tens of thousands. Large open areas are the worst case, as the many shortest paths across
+//them need many shortcuts: there the hierarchy is slow to build and no faster to query than A*
+//The path found is then unpacked: every shortcut is replaced by the two edges it stands for, until only single moves
+//are left
+//Only the upward edges are kept, in compressed form: the upward edges of node n are edge i for i in
+//[edgeStart[n], edgeStart[n+1]), leading to edgeTargets[i] at a cost of edgeCosts[i]. edgeMiddles[i] is the node a
+//shortcut skips over, or -1 for a single move. Hierarchies can be saved to disk and loaded back instead of being rebuilt
+//A hierarchy is immutable, so it can be queried from many threads at once, but it only describes the map it was built from
+public final class ContractionHierarchy {
+
+    //First 4 bytes of every hierarchy file ("PFCH"), followed by the format version
+    private static final int MAGIC = 0x48434650;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int width;
+    private final int height;
+    private final long mapVersion;
+    private final int movement;
+
+    //Cell (y*width+x) of each node, and node of each cell (-1 for blocked cells)
+    private final int[] nodeCells;
+    private final int[] cellNodes;
+
+    private final int[] edgeStart;
+    private final int[] edgeTargets;
+    private final int[] edgeCosts;
+    private final int[] edgeMiddles;
+
+    //Search state of each querying thread
+    private final ThreadLocal<Query> queries = new ThreadLocal<Query>() {
+        @Override
+        protected Query initialValue() {
+            return new Query(ContractionHierarchy.this.nodeCells.length);
+        }
+    };
+
+    private ContractionHierarchy(int width, int height, long mapVersion, int movement, int[] nodeCells, int[] edgeStart,
+            int[] edgeTargets, int[] edgeCosts, int[] edgeMiddles) {
+        this.width = width;
+        this.height = height;
+        this.mapVersion = mapVersion;
+        this.movement = movement;
+        this.nodeCells = nodeCells;
+        this.cellNodes = new int[width*height];
+        Arrays.fill(this.cellNodes, -1);
+        for(int n=0; n<nodeCells.length; n++) {
+            this.cellNodes[nodeCells[n]] = n;
+        }
+        this.edgeStart = edgeStart;
+        this.edgeTargets = edgeTargets;
+        this.edgeCosts = edgeCosts;
+        this.edgeMiddles = edgeMiddles;
+    }
+
+    //Build the hierarchy of a map's grid graph, in which every legal move of the movement mode is an edge
+    //This takes seconds to minutes depending on the size of the map, and is meant to be done once and saved
+    public static ContractionHierarchy build(GridMap map, int movement) {
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        if(map.getMaxCost() > 1) {
+            throw new IllegalArgumentException("Contraction hierarchies can't be built for a map with costs");
+        }
+        int width = map.getWidth();
+        int height = map.getHeight();
+        IntList cells = new IntList();
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                if(map.isWalkable(x, y)) {
+                    cells.add(y*width + x);
+                }
+            }
+        }
+        int[] nodeCells = cells.toArray();
+        int[] cellNodes = new int[width*height];
+        Arrays.fill(cellNodes, -1);
+        for(int n=0; n<nodeCells.length; n++) {
+            cellNodes[nodeCells[n]] = n;
+        }
+
+        ContractionBuilder builder = new ContractionBuilder(nodeCells.length);
+        int allowedMoves = Movement.allowedMoves(movement);
+        for(int n=0; n<nodeCells.length; n++) {
+            int x = nodeCells[n] % width;
+            int y = nodeCells[n] / width;
+            int moves = Neighbours.legalMoves(map.neighbourBits(x, y)) & allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int neighbour = cellNodes[(y + Neighbours.DY[d])*width + x + Neighbours.DX[d]];
+                //Moves are symmetric, so each edge is added once, from its lower node
+                if(neighbour > n) {
+                    builder.addEdge(n, neighbour, Movement.cost(movement, d));
+                }
+            }
+        }
+        IntList[] upward = builder.contract();
+
+        int[] edgeStart = new int[nodeCells.length + 1];
+        for(int n=0; n<nodeCells.length; n++) {
+            edgeStart[n+1] = edgeStart[n] + upward[n].size()/3;
+        }
+        int edgeCount = edgeStart[nodeCells.length];
+        int[] edgeTargets = new int[edgeCount];
+        int[] edgeCosts = new int[edgeCount];
+        int[] edgeMiddles = new int[edgeCount];
+        for(int n=0; n<nodeCells.length; n++) {
+            IntList edges = upward[n];
+            for(int i=0; i<edges.size(); i+=3) {
+                int e = edgeStart[n] + i/3;
+                edgeTargets[e] = edges.get(i);
+                edgeCosts[e] = edges.get(i+1);
+                edgeMiddles[e] = edges.get(i+2);
+            }
+        }
+        return new ContractionHierarchy(width, height, map.getVersion(), movement, nodeCells, edgeStart, edgeTargets,
+                edgeCosts, edgeMiddles);
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Version of the map the hierarchy was built from, or -1 if it was loaded from a file
+    public long getMapVersion() {
+        return this.mapVersion;
+    }
+
+    public int getMovement() {
+        return this.movement;
+    }
+
+    //Number of nodes, which is the number of walkable cells
+    public int getNodeCount() {
+        return this.nodeCells.length;
+    }
+
+    //Number of upward edges, single moves and shortcuts together
+    public int getEdgeCount() {
+        return this.edgeTargets.length;
+    }
+
+    //Number of upward edges that are shortcuts
+    public int getShortcutCount() {
+        int shortcuts = 0;
+        for(int middle : this.edgeMiddles) {
+            if(middle != -1) {
+                shortcuts++;
+            }
+        }
+        return shortcuts;
+    }
+
+    //Number of bytes used by the nodes and edges
+    public long getMemoryUsage() {
+        return 4L*(this.nodeCells.length + this.cellNodes.length + this.edgeStart.length) + 12L*this.edgeTargets.length;
+    }
+
+    //Find a shortest path from (sourceX, sourceY) to (goalX, goalY). Blocked cells can't be left or reached
+    //The visited cells aren't recorded, and the expansion count is the number of nodes settled by both searches
+    public SearchResult findPath(int sourceX, int sourceY, int goalX, int goalY) {
+        this.checkOnMap(sourceX, sourceY);
+        this.checkOnMap(goalX, goalY);
+        int sourceCell = sourceY*this.width + sourceX;
+        int goalCell = goalY*this.width + goalX;
+        if(sourceCell == goalCell) {
+            return new SearchResult(this.width, new int[] {sourceCell}, new int[0], 0, 0);
+        }
+        int source = this.cellNodes[sourceCell];
+        int goal = this.cellNodes[goalCell];
+        if(source == -1 || goal == -1) {
+            return new SearchResult(this.width, new int[0], new int[0], -1, 0);
+        }
+
+        Query query = this.queries.get();
+        query.reset();
+        query.forward.reach(source, 0, -1, -1, query.touched);
+        query.backward.reach(goal, 0, -1, -1, query.touched);
+        int best = UNREACHED;
+        int meeting = -1;
+        int nodesExpanded = 0;
+
+        //Settle nodes from whichever side is behind, until neither side can improve on the best meeting
+        while(true) {
+            boolean forwardLive = query.forward.isLive(best);
+            boolean backwardLive = query.backward.isLive(best);
+            if(!forwardLive && !backwardLive) {
+                break;
+            }
+            Side side = query.forward;
+            Side other = query.backward;
+            if(!forwardLive || (backwardLive && query.backward.open.peekKey() < query.forward.open.peekKey())) {
+                side = query.backward;
+                other = query.forward;
+            }
+            int node = side.open.poll();
+            nodesExpanded++;
+            int distance = side.distances[node];
+            if(other.distances[node] != UNREACHED && distance + other.distances[node] < best) {
+                best = distance + other.distances[node];
+                meeting = node;
+            }
+            if(this.isStalled(side, node, distance)) {
+                continue;
+            }
+            for(int e=this.edgeStart[node]; e<this.edgeStart[node+1]; e++) {
+                side.reach(this.edgeTargets[e], distance + this.edgeCosts[e], node, e, query.touched);
+            }
+        }
+        if(meeting == -1) {
+            return new SearchResult(this.width, new int[0], new int[0], -1, nodesExpanded);
+        }
+        return new SearchResult(this.width, this.unpackPath(query, source, meeting), new int[0], best, nodesExpanded);
+    }
+
+    //Save the hierarchy. All values are little-endian ints: magic, format version, width, height, movement mode, node
+    //count, edge count and a reserved 0, then the node cells, edge starts, edge targets, edge costs and edge middles
+    public void save(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(this.width).putInt(this.height).putInt(this.movement)
+                    .putInt(this.nodeCells.length).putInt(this.edgeTargets.length).putInt(0);
+            MapFiles.writeInts(channel, buffer, this.nodeCells);
+            MapFiles.writeInts(channel, buffer, this.edgeStart);
+            MapFiles.writeInts(channel, buffer, this.edgeTargets);
+            MapFiles.writeInts(channel, buffer, this.edgeCosts);
+            MapFiles.writeInts(channel, buffer, this.edgeMiddles);
+            buffer.flip();
+            MapFiles.writeFully(channel, buffer);
+        }
+    }
+
+    //Load a hierarchy saved with save. It must have been built from the same walls as the map it stands for, which
+    //can't be checked beyond the map's size
+    public static ContractionHierarchy load(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            MapFiles.readFully(channel, header, file);
+            if(header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " is not a contraction hierarchy file");
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int movement = header.getInt();
+            int nodeCount = header.getInt();
+            int edgeCount = header.getInt();
+            if(width <= 0 || height <= 0 || !Movement.isValid(movement) || nodeCount < 0 || edgeCount < 0
+                    || nodeCount > (long)width*height || 4L*edgeCount + 8L*nodeCount > Integer.MAX_VALUE
+                    || channel.size() != HEADER_SIZE + 4L*(2L*nodeCount + 1 + 3L*edgeCount)) {
+                throw new IOException(file + " has an invalid header");
+            }
+            int[] nodeCells = MapFiles.readInts(channel, nodeCount, file);
+            int[] edgeStart = MapFiles.readInts(channel, nodeCount + 1, file);
+            int[] edgeTargets = MapFiles.readInts(channel, edgeCount, file);
+            int[] edgeCosts = MapFiles.readInts(channel, edgeCount, file);
+            int[] edgeMiddles = MapFiles.readInts(channel, edgeCount, file);
+            BitSet seen = new BitSet(width*height);
+            for(int cell : nodeCells) {
+                if(cell < 0 || cell >= width*height) {
+                    throw new IOException(file + " has a node off the map");
+                }
+                if(seen.get(cell)) {
+                    throw new IOException(file + " has two nodes on cell " + cell);
+                }
+                seen.set(cell);
+            }
+            //Edge ranges must run in order from 0 to the edge count, and edges must lead to nodes (or, for the middle
+            //node of an edge that isn't a shortcut, be -1)
+            if(edgeStart[0] != 0 || edgeStart[nodeCount] != edgeCount) {
+                throw new IOException(file + " has invalid edge ranges");
+            }
+            for(int n=0; n<nodeCount; n++) {
+                if(edgeStart[n] > edgeStart[n+1]) {
+                    throw new IOException(file + " has invalid edge ranges");
+                }
+            }
+            for(int e=0; e<edgeCount; e++) {
+                if(edgeTargets[e] < 0 || edgeTargets[e] >= nodeCount || edgeMiddles[e] < -1
+                        || edgeMiddles[e] >= nodeCount || edgeCosts[e] <= 0) {
+                    throw new IOException(file + " has an invalid edge " + e);
+                }
+            }
+            return new ContractionHierarchy(width, height, -1, movement, nodeCells, edgeStart, edgeTargets, edgeCosts,
+                    edgeMiddles);
+        }
+    }
+
+    //Check whether a node's distance can't be the shortest, because a node above it was reached for less than the edge
+    //between them costs. Its edges lead nowhere a shortest path goes, so they needn't be relaxed (stall-on-demand)
+    private boolean isStalled(Side side, int node, int distance) {
+        for(int e=this.edgeStart[node]; e<this.edgeStart[node+1]; e++) {
+            int above = side.distances[this.edgeTargets[e]];
+            if(above != UNREACHED && above + this.edgeCosts[e] < distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Turn the two half paths meeting at a node into cells, unpacking every shortcut on the way
+    private int[] unpackPath(Query query, int source, int meeting) {
+        //Nodes from the source up to the meeting node, found backwards through the forward parents
+        IntList nodes = new IntList();
+        for(int node = meeting; node != -1; node = query.forward.parents[node]) {
+            nodes.add(node);
+        }
+        IntList cells = new IntList();
+        cells.add(this.nodeCells[source]);
+        IntList stack = query.stack;
+        for(int i=nodes.size()-1; i>0; i--) {
+            this.unpack(nodes.get(i), nodes.get(i-1), stack, cells);
+        }
+        //Then down from the meeting node to the goal, along the backward parents
+        for(int node = meeting; query.backward.parents[node] != -1; node = query.backward.parents[node]) {
+            this.unpack(node, query.backward.parents[node], stack, cells);
+        }
+        return cells.toArray();
+    }
+
+    //Append the cells of the edge from a to b (excluding a's own cell), replacing shortcuts by the edges they skip
+    private void unpack(int a, int b, IntList stack, IntList cells) {
+        stack.clear();
+        stack.add(a);
+        stack.add(b);
+        while(stack.size() > 0) {
+            int to = stack.get(stack.size()-1);
+            int from = stack.get(stack.size()-2);
+            stack.truncate(stack.size()-2);
+            int middle = this.edgeMiddles[this.edgeBetween(from, to)];
+            if(middle == -1) {
+                cells.add(this.nodeCells[to]);
+                continue;
+            }
+            //The second half goes on the stack first, so the first half comes off first
+            stack.add(middle);
+            stack.add(to);
+            stack.add(from);
+            stack.add(middle);
+        }
+    }
+
+    //Index of the edge between two nodes, which is stored with whichever of them was contracted first
+    private int edgeBetween(int a, int b) {
+        for(int e=this.edgeStart[a]; e<this.edgeStart[a+1]; e++) {
+            if(this.edgeTargets[e] == b) {
+                return e;
+            }
+        }
+        for(int e=this.edgeStart[b]; e<this.edgeStart[b+1]; e++) {
+            if(this.edgeTargets[e] == a) {
+                return e;
+            }
+        }
+        throw new IllegalStateException("No edge between nodes " + a + " and " + b);
+    }
+
+    //Throw an exception if (x, y) does not lie on the map
+    private void checkOnMap(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            throw new IllegalArgumentException("(" + x + "," + y + ") is not on the map");
+        }
+    }
+
+    //Per-thread state of the two upward searches, reset through the list of nodes either of them reached
+    private static final class Query {
+
+        private final Side forward;
+        private final Side backward;
+        private final IntList touched = new IntList();
+        private final IntList stack = new IntList();
+
+        Query(int nodeCount) {
+            this.forward = new Side(nodeCount);
+            this.backward = new Side(nodeCount);
+        }
+
+        void reset() {
+            for(int i=0; i<this.touched.size(); i++) {
+                int node = this.touched.get(i);
+                this.forward.distances[node] = UNREACHED;
+                this.backward.distances[node] = UNREACHED;
+            }
+            this.touched.clear();
+            this.forward.open.clear();
+            this.backward.open.clear();
+        }
+    }
+
+    //One direction of a query: an upward Dijkstra search
+    private static final class Side {
+
+        private final int[] distances;
+        private final int[] parents;
+        private final IndexedMinHeap open;
+
+        Side(int nodeCount) {
+            this.distances = new int[nodeCount];
+            this.parents = new int[nodeCount];
+            this.open = new IndexedMinHeap(nodeCount);
+            Arrays.fill(this.distances, UNREACHED);
+        }
+
+        //Check whether this side can still find a meeting cheaper than best
+        boolean isLive(int best) {
+            return !this.open.isEmpty() && this.open.peekKey() < best;
+        }
+
+        //Record a path to node through parent (along edge e) if it is shorter than the one known
+        void reach(int node, int distance, int parent, int e, IntList touched) {
+            if(distance >= this.distances[node]) {
+                return;
+            }
+            if(this.distances[node] == UNREACHED) {
+                touched.add(node);
+            }
+            this.distances[node] = distance;
+            this.parents[node] = parent;
+            if(this.open.contains(node)) {
+                this.open.decreaseKey(node, distance);
+            }
+            else {
+                this.open.add(node, distance);
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Moves many agents across one map at once without collisions, using Windowed Hierarchical Cooperative A* (WHCA*)
+//Time advances in steps, in which every agent waits or makes one legal move. No two agents ever hold the same cell at
+//the same step, or swap cells in one step
+//Agents are planned one after another against a space-time ReservationTable: each finds the cheapest way to spend the
+//next window steps (see SpaceTimeSearch) around the reservations of the agents planned before it, then reserves its
+//own cells. Beyond the window, agents are guided by their true distance to the goal, worked out lazily per agent
+//(see ResumableDistance). That takes about as much memory per agent as an A* search from its source would
+//Plans are followed for half a window and then redone from the agents' new cells
+//Two agents more than 2*window cells apart (on either axis) can't meet within a window, so agents are split into
+//groups that can't reach each other, and the groups are planned in parallel, each against a table of its own
+//An agent that finds no way through the window waits, and from then on is planned before every agent that hasn't
+//failed since, so two agents blocking each other don't keep taking turns. Agents that reached their goal stay there,
+//but are planned after the others of the same priority, so they step aside when others need to pass
+//Like WHCA* itself, this isn't complete: in corridors one cell wide, agents can end up blocking each other for good
+//A planner is not thread-safe. The map must not change while it is in use
+public class CooperativePlanner {
+
+    //Largest window allowed. A searching thread keeps about 12*(2*window+1)^2*(window+1) bytes of search state
+    public static final int MAX_WINDOW = 64;
+
+    private final GridMap map;
+    private final int movement;
+    private final int allowedMoves;
+    private final int window;
+
+    //Current cell and goal cell (y*width+x) of every agent
+    private final IntList positions = new IntList();
+    private final IntList goals = new IntList();
+
+    //Distances to the goal of every agent
+    private final ArrayList<ResumableDistance> distances = new ArrayList<ResumableDistance>();
+
+    //Planning priority of every agent, raised above all others whenever its search fails, and whether it failed in the
+    //last planning round
+    private int[] priorities = new int[0];
+    private int lastPriority;
+    private boolean[] failed = new boolean[0];
+
+    //Cells of every agent for the steps of the current plans, and how far along them the agents are
+    private int[][] plans = new int[0][];
+    private int planStep;
+    private int roundSteps;
+
+    private long time;
+    private int replanCount;
+    private int groupCount;
+
+    //Search state of each planning thread
+    private final ThreadLocal<SpaceTimeSearch> searches = new ThreadLocal<SpaceTimeSearch>() {
+        @Override
+        protected SpaceTimeSearch initialValue() {
+            return new SpaceTimeSearch(CooperativePlanner.this.window);
+        }
+    };
+
+    //Create a planner for agents moving across a map in one of the movement modes, planning window steps ahead
+    public CooperativePlanner(GridMap map, int movement, int window) {
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        if(window < 1 || window > MAX_WINDOW) {
+            throw new IllegalArgumentException("Window must be between 1 and " + MAX_WINDOW + ", got " + window);
+        }
+        if(map.getMaxCost() > 1) {
+            throw new IllegalArgumentException("Cooperative planning doesn't support maps with costs");
+        }
+        this.map = map;
+        this.movement = movement;
+        this.allowedMoves = Movement.allowedMoves(movement);
+        this.window = window;
+    }
+
+    //Add an agent at (sourceX, sourceY) heading for (goalX, goalY), and return its id. Agents are numbered from 0
+    //The source must be walkable and free of other agents. Goals may be shared, but only one agent can stand on each
+    public int addAgent(int sourceX, int sourceY, int goalX, int goalY) {
+        if(!this.map.isWalkable(sourceX, sourceY) || !this.map.isWalkable(goalX, goalY)) {
+            throw new IllegalArgumentException("Agents must start and end on walkable cells");
+        }
+        int source = sourceY*this.map.getWidth() + sourceX;
+        for(int a=0; a<this.positions.size(); a++) {
+            if(this.positions.get(a) == source) {
+                throw new IllegalArgumentException("(" + sourceX + "," + sourceY + ") already holds agent " + a);
+            }
+        }
+        int goal = goalY*this.map.getWidth() + goalX;
+        this.positions.add(source);
+        this.goals.add(goal);
+        this.distances.add(new ResumableDistance(this.map, this.movement, goal, source));
+        this.priorities = Arrays.copyOf(this.priorities, this.positions.size());
+        this.failed = Arrays.copyOf(this.failed, this.positions.size());
+        //Replan before the next step, so the new agent gets a plan
+        this.roundSteps = 0;
+        return this.positions.size() - 1;
+    }
+
+    public int getAgentCount() {
+        return this.positions.size();
+    }
+
+    public int getX(int agent) {
+        return this.positions.get(agent) % this.map.getWidth();
+    }
+
+    public int getY(int agent) {
+        return this.positions.get(agent) / this.map.getWidth();
+    }
+
+    public boolean isAtGoal(int agent) {
+        return this.positions.get(agent) == this.goals.get(agent);
+    }
+
+    //Number of agents standing on their goal
+    public int getArrivedCount() {
+        int arrived = 0;
+        for(int a=0; a<this.positions.size(); a++) {
+            if(this.isAtGoal(a)) {
+                arrived++;
+            }
+        }
+        return arrived;
+    }
+
+    //Number of steps taken so far
+    public long getTime() {
+        return this.time;
+    }
+
+    //Number of times the agents were planned, and the number of groups planned in parallel the last time
+    public int getReplanCount() {
+        return this.replanCount;
+    }
+
+    public int getGroupCount() {
+        return this.groupCount;
+    }
+
+    //Number of bytes used by the agents' distance searches, which keep everything they explored
+    public long getMemoryUsage() {
+        long bytes = 0;
+        for(ResumableDistance distance : this.distances) {
+            bytes += distance.getMemoryUsage();
+        }
+        return bytes;
+    }
+
+    //Move every agent one step along its plan, planning again first if the current plans have been used up
+    public void step() {
+        if(this.planStep >= this.roundSteps) {
+            this.replan();
+        }
+        for(int a=0; a<this.positions.size(); a++) {
+            this.positions.set(a, this.plans[a][this.planStep + 1]);
+        }
+        this.planStep++;
+        this.time++;
+    }
+
+    //Plan every agent for the next window, group by group
+    private void replan() {
+        int[][] groups = this.groupAgents();
+        this.plans = new int[this.positions.size()][];
+        ForkJoinPool.commonPool().invoke(new GroupTask(groups, 0, groups.length));
+        //Raise the agents that failed in id order, so the outcome doesn't depend on how the groups were scheduled
+        for(int a=0; a<this.positions.size(); a++) {
+            if(this.failed[a]) {
+                this.priorities[a] = ++this.lastPriority;
+            }
+        }
+        //Follow the plans for half a window, or a single step if some agent only got that far
+        this.roundSteps = Math.max(1, this.window/2);
+        for(int[] plan : this.plans) {
+            this.roundSteps = Math.min(this.roundSteps, plan.length - 1);
+        }
+        this.planStep = 0;
+        this.replanCount++;
+        this.groupCount = groups.length;
+    }
+
+    //Plan the agents of one group, in order, against a reservation table of their own
+    private void planGroup(int[] group) {
+        ReservationTable table = new ReservationTable(group.length*(this.window + 2));
+        SpaceTimeSearch search = this.searches.get();
+        //Every agent holds its cell for the first step, so whatever the others plan, it can always wait there
+        for(int agent : group) {
+            table.reserve(this.positions.get(agent), 0, agent);
+            table.reserve(this.positions.get(agent), 1, agent);
+        }
+        for(int agent : group) {
+            int position = this.positions.get(agent);
+            int[] plan = search.plan(this.map, this.allowedMoves, this.movement, table, agent, position,
+                    this.goals.get(agent), this.distances.get(agent));
+            this.failed[agent] = plan == null;
+            if(plan == null) {
+                plan = new int[] {position, position};
+            }
+            for(int t=0; t<plan.length; t++) {
+                table.reserve(plan[t], t, agent);
+            }
+            this.plans[agent] = plan;
+        }
+    }
+
+    //Split the agents into groups that can't meet within a window, with each group's agents in planning order: by
+    //priority, then agents still on their way before those on their goal, then by id
+    private int[][] groupAgents() {
+        int count = this.positions.size();
+        int width = this.map.getWidth();
+        //Bucket the agents into squares of 2*window+1 cells, so only agents in neighbouring squares can be close enough
+        int size = 2*this.window + 1;
+        int bucketsPerRow = (width + size - 1) / size;
+        int bucketRows = (this.map.getHeight() + size - 1) / size;
+        int[] bucketStart = new int[bucketsPerRow*bucketRows + 1];
+        int[] bucketOf = new int[count];
+        for(int a=0; a<count; a++) {
+            int position = this.positions.get(a);
+            bucketOf[a] = (position / width / size)*bucketsPerRow + (position % width) / size;
+            bucketStart[bucketOf[a] + 1]++;
+        }
+        for(int b=0; b<bucketsPerRow*bucketRows; b++) {
+            bucketStart[b+1] += bucketStart[b];
+        }
+        int[] bucketAgents = new int[count];
+        int[] fill = Arrays.copyOf(bucketStart, bucketStart.length - 1);
+        for(int a=0; a<count; a++) {
+            bucketAgents[fill[bucketOf[a]]++] = a;
+        }
+
+        //Join every pair of agents within 2*window cells of each other into one group (union-find by size)
+        int[] parent = new int[count];
+        int[] groupSize = new int[count];
+        for(int a=0; a<count; a++) {
+            parent[a] = a;
+            groupSize[a] = 1;
+        }
+        for(int a=0; a<count; a++) {
+            int x = this.positions.get(a) % width;
+            int y = this.positions.get(a) / width;
+            int bx = x / size;
+            int by = y / size;
+            for(int ny = Math.max(by - 1, 0); ny <= Math.min(by + 1, bucketRows - 1); ny++) {
+                for(int nx = Math.max(bx - 1, 0); nx <= Math.min(bx + 1, bucketsPerRow - 1); nx++) {
+                    int bucket = ny*bucketsPerRow + nx;
+                    for(int i=bucketStart[bucket]; i<bucketStart[bucket+1]; i++) {
+                        int other = bucketAgents[i];
+                        if(other > a && Math.abs(this.positions.get(other) % width - x) <= 2*this.window
+                                && Math.abs(this.positions.get(other) / width - y) <= 2*this.window) {
+                            union(parent, groupSize, a, other);
+                        }
+                    }
+                }
+            }
+        }
+
+        //Number the groups, then list their agents in planning order
+        int[] groupOf = new int[count];
+        int groups = 0;
+        for(int a=0; a<count; a++) {
+            if(root(parent, a) == a) {
+                groupOf[a] = groups++;
+            }
+        }
+        int[][] members = new int[groups][];
+        int[] filled = new int[groups];
+        for(int a=0; a<count; a++) {
+            int g = groupOf[root(parent, a)];
+            if(members[g] == null) {
+                members[g] = new int[groupSize[root(parent, a)]];
+            }
+        }
+        long[] order = new long[count];
+        for(int a=0; a<count; a++) {
+            order[a] = (long)(Integer.MAX_VALUE - this.priorities[a]) << 32 | (this.isAtGoal(a) ? 1L << 31 : 0) | a;
+        }
+        Arrays.sort(order);
+        for(long key : order) {
+            int a = (int)key & Integer.MAX_VALUE;
+            int g = groupOf[root(parent, a)];
+            members[g][filled[g]++] = a;
+        }
+        return members;
+    }
+
+    private static int root(int[] parent, int a) {
+        while(parent[a] != a) {
+            a = parent[a];
+        }
+        return a;
+    }
+
+    private static void union(int[] parent, int[] size, int a, int b) {
+        a = root(parent, a);
+        b = root(parent, b);
+        if(a == b) {
+            return;
+        }
+        if(size[a] < size[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+    }
+
+    //Plans the groups in [from, to), splitting the range in half until each task holds a single group
+    private class GroupTask extends RecursiveAction {
+
+        private final int[][] groups;
+        private final int from;
+        private final int to;
+
+        GroupTask(int[][] groups, int from, int to) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from <= 1) {
+                for(int g=this.from; g<this.to; g++) {
+                    CooperativePlanner.this.planGroup(this.groups[g]);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new GroupTask(this.groups, this.from, middle), new GroupTask(this.groups, middle, this.to));
+        }
+    }
+}
@@ -0,0 +1,402 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Dijkstra's algorithm with the expansions spread over the common fork/join pool (delta-stepping)
+//Reached cells wait in buckets of tentative distances delta wide, and all the cells of the lowest bucket are expanded
+//at once, in parallel. Light moves (costing at most delta, so they can end in the same bucket) are relaxed first, over
+//and over while they keep lowering cells into it, then the heavier moves of every cell the bucket held. Once the
+//bucket stays empty, the distances of its cells are final, as they would be if Dijkstra's algorithm closed them one
+//at a time
+//delta is the cost of a diagonal move, so on maps without costs every move is light and each bucket takes a round or
+//two of parallel tasks. The work done is about that of a sequential search: cells are only expanded again when a
+//later round of the same bucket lowers them
+//Distances are lowered with compare-and-set on one primitive array, so no cell is ever locked. Each task collects the
+//cells it lowered and adds them to the buckets in one batch
+//Distances, and so path costs, are exactly those of Graph.DIJKSTRA. Paths are read back from the final distances, so
+//between paths of the same cost, the one returned can differ
+//Like SearchEngine, an instance is reused between queries on grids of one size, and is not thread-safe itself
+final class DeltaStepping {
+
+    //Distance of cells that haven't been reached
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    //Frontiers of up to this many cells are expanded on the calling thread. Larger ones are split into tasks of about
+    //this many cells
+    private static final int LEAF_SIZE = 256;
+
+    private final int width;
+    private final int height;
+    private final AtomicIntegerArray distances;
+
+    //Cells reached by the current path query, so their distances can be cleared for the next one
+    private final IntList labelled = new IntList();
+
+    //Buckets of the current query, used in a cycle: bucket b is held in slot b % buckets.length. A move raises a
+    //distance by at most the largest move cost, so the buckets still in use never share a slot
+    private IntList[] buckets = new IntList[0];
+
+    //Cells expanded from the current bucket, whose heavy moves are relaxed once it stays empty
+    private final IntList settled = new IntList();
+
+    //Settings of the current query, read by its tasks
+    private GridMap map;
+    private int movement;
+    private int allowedMoves;
+    private boolean weighted;
+    private boolean backwards;
+    private boolean labelling;
+    private int delta;
+
+    private final AtomicLong nodesExpanded = new AtomicLong();
+    private final AtomicLong nodesPushed = new AtomicLong();
+    private int peakFrontier;
+
+    DeltaStepping(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.distances = new AtomicIntegerArray(width*height);
+        for(int i=0; i<width*height; i++) {
+            this.distances.lazySet(i, UNREACHED);
+        }
+    }
+
+    //Find a path for a Graph.DIJKSTRA request
+    SearchResult search(GridMap map, SearchRequest request) {
+        int source = request.getSourceY()*this.width + request.getSourceX();
+        int goal = request.getGoalY()*this.width + request.getGoalX();
+        try {
+            this.run(map, request.getMovement(), false, true, new int[] {source}, goal);
+            int expanded = (int)Math.min(this.nodesExpanded.get(), Integer.MAX_VALUE);
+            int cost = this.distances.get(goal);
+            if(cost == UNREACHED) {
+                return new SearchResult(this.width, new int[0], new int[0], -1, expanded);
+            }
+            return new SearchResult(this.width, this.pathTo(source, goal), new int[0], cost, expanded);
+        }
+        finally {
+            for(int i=0; i<this.labelled.size(); i++) {
+                this.distances.lazySet(this.labelled.get(i), UNREACHED);
+            }
+            this.labelled.clear();
+            this.map = null;
+        }
+    }
+
+    //Fill in the distances and flow of a DistanceField, as SearchEngine.fillDistanceField does, and return the number
+    //of cells expanded. The field grows backwards from the goals, so a move pays the cost of the cell it leaves
+    int fillDistanceField(GridMap map, int[] goals, int movement, int[] fieldDistances, byte[] flow) {
+        int[] sources = new int[goals.length];
+        int count = 0;
+        for(int goal : goals) {
+            if(map.isWalkable(goal % this.width, goal / this.width)) {
+                sources[count++] = goal;
+            }
+        }
+        try {
+            this.run(map, movement, true, false, Arrays.copyOf(sources, count), -1);
+            //Copy the distances out (clearing them for the next query), then point every cell at a neighbour it can
+            //reach the goal through
+            ForkJoinPool.commonPool().invoke(new FieldTask(fieldDistances, flow, 0, fieldDistances.length, true));
+            ForkJoinPool.commonPool().invoke(new FieldTask(fieldDistances, flow, 0, fieldDistances.length, false));
+        }
+        finally {
+            this.map = null;
+        }
+        return (int)Math.min(this.nodesExpanded.get(), Integer.MAX_VALUE);
+    }
+
+    //Collect the statistics of the last search. The peak open size is the largest frontier expanded at once
+    SearchStats statsOf(SearchResult result, long wallNanos, long cpuNanos) {
+        return new SearchStats(result.getNodesExpanded(), (int)Math.min(this.nodesPushed.get(), Integer.MAX_VALUE), 0,
+                this.peakFrontier, wallNanos, cpuNanos);
+    }
+
+    //Lower distances from the sources until every bucket is empty, or until stop (unless it is -1) has its final
+    //distance
+    private void run(GridMap map, int movement, boolean backwards, boolean labelling, int[] sources, int stop) {
+        this.map = map;
+        this.movement = movement;
+        this.allowedMoves = Movement.allowedMoves(movement);
+        this.weighted = map.getMaxCost() > 1;
+        this.backwards = backwards;
+        this.labelling = labelling;
+        this.delta = Movement.cost(movement, 4);
+        this.nodesExpanded.set(0);
+        this.nodesPushed.set(0);
+        this.peakFrontier = 0;
+        int slots = map.getMaxCost() + 2;
+        if(this.buckets.length != slots) {
+            this.buckets = new IntList[slots];
+            for(int s=0; s<slots; s++) {
+                this.buckets[s] = new IntList();
+            }
+        }
+        for(int s=0; s<slots; s++) {
+            this.buckets[s].clear();
+        }
+        for(int source : sources) {
+            if(this.distances.get(source) == UNREACHED) {
+                this.distances.set(source, 0);
+                this.buckets[0].add(source);
+                if(labelling) {
+                    this.labelled.add(source);
+                }
+            }
+        }
+
+        int bucket = 0;
+        while(true) {
+            int skipped = 0;
+            while(skipped < slots && this.buckets[bucket % slots].size() == 0) {
+                bucket++;
+                skipped++;
+            }
+            if(skipped == slots) {
+                return;
+            }
+            if(stop != -1 && this.distances.get(stop) / this.delta < bucket) {
+                return;
+            }
+            this.settled.clear();
+            IntList current = this.buckets[bucket % slots];
+            while(current.size() > 0) {
+                int[] frontier = current.toArray();
+                current.clear();
+                this.peakFrontier = Math.max(this.peakFrontier, frontier.length);
+                this.expand(frontier, bucket, true);
+            }
+            if(this.weighted) {
+                this.expand(this.settled.toArray(), bucket, false);
+            }
+            bucket++;
+        }
+    }
+
+    //Relax the light or heavy moves out of the cells that still lie in bucket
+    private void expand(int[] cells, int bucket, boolean light) {
+        RelaxTask task = new RelaxTask(cells, 0, cells.length, bucket, light);
+        if(cells.length <= LEAF_SIZE) {
+            task.relaxAll();
+        }
+        else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    //Cells of a shortest path from source to goal, walking back from the goal over moves whose cost makes up the
+    //difference in distance
+    private int[] pathTo(int source, int goal) {
+        IntList cells = new IntList();
+        cells.add(goal);
+        for(int cell = goal; cell != source; ) {
+            cell = this.previous(cell);
+            cells.add(cell);
+        }
+        int[] path = new int[cells.size()];
+        for(int i=0; i<path.length; i++) {
+            path[i] = cells.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    //A cell with a legal move to cell that ends a shortest path to it
+    private int previous(int cell) {
+        int x = cell % this.width;
+        int y = cell / this.width;
+        int distance = this.distances.get(cell);
+        int weight = this.weighted ? this.map.getCost(x, y) : 1;
+        for(int d=0; d<8; d++) {
+            int px = x - Neighbours.DX[d];
+            int py = y - Neighbours.DY[d];
+            if((this.allowedMoves & (1 << d)) == 0 || px<0 || px>=this.width || py<0 || py>=this.height) {
+                continue;
+            }
+            int before = this.distances.get(py*this.width + px);
+            if(before != UNREACHED && before + Movement.cost(this.movement, d)*weight == distance
+                    && (Neighbours.legalMoves(this.map.neighbourBits(px, py)) & (1 << d)) != 0) {
+                return py*this.width + px;
+            }
+        }
+        throw new IllegalStateException("No move leads to (" + x + "," + y + ") at distance " + distance);
+    }
+
+    //Lower the distance of cell to distance, and return its old distance, or -1 if it was already that low
+    private int lower(int cell, int distance) {
+        int known = this.distances.get(cell);
+        while(distance < known) {
+            if(this.distances.compareAndSet(cell, known, distance)) {
+                return known;
+            }
+            known = this.distances.get(cell);
+        }
+        return -1;
+    }
+
+    //Relaxes the moves out of the cells in [from, to), splitting the range in half until it holds at most LEAF_SIZE
+    private class RelaxTask extends RecursiveAction {
+
+        private final int[] cells;
+        private final int from;
+        private final int to;
+        private final int bucket;
+        private final boolean light;
+
+        RelaxTask(int[] cells, int from, int to, int bucket, boolean light) {
+            this.cells = cells;
+            this.from = from;
+            this.to = to;
+            this.bucket = bucket;
+            this.light = light;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from <= LEAF_SIZE) {
+                this.relaxAll();
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new RelaxTask(this.cells, this.from, middle, this.bucket, this.light),
+                    new RelaxTask(this.cells, middle, this.to, this.bucket, this.light));
+        }
+
+        //Relax the moves of the range, keeping the cells lowered in lists of their own until the end
+        void relaxAll() {
+            DeltaStepping search = DeltaStepping.this;
+            IntList[] lowered = new IntList[search.buckets.length];
+            IntList labelled = new IntList();
+            IntList settled = new IntList();
+            int expanded = 0;
+            int pushed = 0;
+            for(int i=this.from; i<this.to; i++) {
+                int cell = this.cells[i];
+                int distance = search.distances.get(cell);
+                //Skip cells lowered into an earlier bucket since they were added to this one
+                if(distance / search.delta != this.bucket) {
+                    continue;
+                }
+                if(this.light) {
+                    expanded++;
+                    if(search.weighted) {
+                        settled.add(cell);
+                    }
+                }
+                int x = cell % search.width;
+                int y = cell / search.width;
+                int moves = Neighbours.legalMoves(search.map.neighbourBits(x, y)) & search.allowedMoves;
+                int weight = search.weighted && search.backwards ? search.map.getCost(x, y) : 1;
+                while(moves != 0) {
+                    int d = Integer.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    int nx = x + Neighbours.DX[d];
+                    int ny = y + Neighbours.DY[d];
+                    int cost = Movement.cost(search.movement, d) *
+                            (search.weighted && !search.backwards ? search.map.getCost(nx, ny) : weight);
+                    if((cost <= search.delta) != this.light) {
+                        continue;
+                    }
+                    int next = ny*search.width + nx;
+                    int known = search.lower(next, distance + cost);
+                    if(known == -1) {
+                        continue;
+                    }
+                    pushed++;
+                    int slot = (distance + cost) / search.delta % lowered.length;
+                    if(lowered[slot] == null) {
+                        lowered[slot] = new IntList();
+                    }
+                    lowered[slot].add(next);
+                    if(known == UNREACHED && search.labelling) {
+                        labelled.add(next);
+                    }
+                }
+            }
+            for(int s=0; s<lowered.length; s++) {
+                if(lowered[s] != null) {
+                    synchronized(search.buckets[s]) {
+                        search.buckets[s].addAll(lowered[s]);
+                    }
+                }
+            }
+            if(labelled.size() > 0) {
+                synchronized(search.labelled) {
+                    search.labelled.addAll(labelled);
+                }
+            }
+            if(settled.size() > 0) {
+                synchronized(search.settled) {
+                    search.settled.addAll(settled);
+                }
+            }
+            search.nodesExpanded.addAndGet(expanded);
+            search.nodesPushed.addAndGet(pushed);
+        }
+    }
+
+    //Copies the distances of the cells in [from, to) out to a field (clearing them for the next query), or works out
+    //their flow from the copied distances, splitting the range in half until it is small enough
+    private class FieldTask extends RecursiveAction {
+
+        private final int[] fieldDistances;
+        private final byte[] flow;
+        private final int from;
+        private final int to;
+        private final boolean copy;
+
+        FieldTask(int[] fieldDistances, byte[] flow, int from, int to, boolean copy) {
+            this.fieldDistances = fieldDistances;
+            this.flow = flow;
+            this.from = from;
+            this.to = to;
+            this.copy = copy;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from > 16*LEAF_SIZE) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new FieldTask(this.fieldDistances, this.flow, this.from, middle, this.copy),
+                        new FieldTask(this.fieldDistances, this.flow, middle, this.to, this.copy));
+                return;
+            }
+            DeltaStepping search = DeltaStepping.this;
+            for(int cell=this.from; cell<this.to; cell++) {
+                if(this.copy) {
+                    this.fieldDistances[cell] = search.distances.get(cell);
+                    search.distances.lazySet(cell, UNREACHED);
+                }
+                else {
+                    this.flow[cell] = (byte)this.flowOf(cell);
+                }
+            }
+        }
+
+        //Direction of the first legal move from cell onto a neighbour whose distance, plus the cost of the move, makes
+        //up cell's own, or -1 on goals and on cells that can't reach one
+        private int flowOf(int cell) {
+            DeltaStepping search = DeltaStepping.this;
+            int distance = this.fieldDistances[cell];
+            if(distance == UNREACHED || distance == 0) {
+                return -1;
+            }
+            int x = cell % search.width;
+            int y = cell / search.width;
+            int moves = Neighbours.legalMoves(search.map.neighbourBits(x, y)) & search.allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int nx = x + Neighbours.DX[d];
+                int ny = y + Neighbours.DY[d];
+                int next = this.fieldDistances[ny*search.width + nx];
+                int weight = search.weighted ? search.map.getCost(nx, ny) : 1;
+                if(next != UNREACHED && next + Movement.cost(search.movement, d)*weight == distance) {
+                    return d;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+//Distances from every cell of a map to the nearest of a set of goals, along with the direction of each cell's next
+//step towards that goal (a flow field)
+//Once built, any path to the goals is found by following the flow from the start cell, without searching
+//A field is immutable, so it can be shared between threads, but it only describes the map version it was built from
+public final class DistanceField {
+
+    private final int width;
+    private final int height;
+    private final long mapVersion;
+    private final int movement;
+    private final int[] goals;
+    private final int[] distances;
+    private final byte[] flow;
+
+    private DistanceField(int width, int height, long mapVersion, int movement, int[] goals, int[] distances, byte[] flow) {
+        this.width = width;
+        this.height = height;
+        this.mapVersion = mapVersion;
+        this.movement = movement;
+        this.goals = goals;
+        this.distances = distances;
+        this.flow = flow;
+    }
+
+    //Build the field for a single goal
+    public static DistanceField build(GridMap map, int movement, int goalX, int goalY) {
+        return build(map, movement, new int[] {goalX}, new int[] {goalY});
+    }
+
+    //Build the field for several goals, where each cell leads to its nearest goal
+    public static DistanceField build(GridMap map, int movement, int[] goalXs, int[] goalYs) {
+        return build(map, movement, goalXs, goalYs, false);
+    }
+
+    //Build the field for a single goal, spreading the work over the common fork/join pool (see DeltaStepping)
+    public static DistanceField buildParallel(GridMap map, int movement, int goalX, int goalY) {
+        return buildParallel(map, movement, new int[] {goalX}, new int[] {goalY});
+    }
+
+    //Build the field for several goals in parallel. Distances are the same as those of build, but where a cell has
+    //several equally short ways to a goal, its flow can pick another one
+    public static DistanceField buildParallel(GridMap map, int movement, int[] goalXs, int[] goalYs) {
+        return build(map, movement, goalXs, goalYs, true);
+    }
+
+    private static DistanceField build(GridMap map, int movement, int[] goalXs, int[] goalYs, boolean parallel) {
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        if(goalXs.length != goalYs.length || goalXs.length == 0) {
+            throw new IllegalArgumentException("Expected matching, non-empty goal coordinates");
+        }
+        int width = map.getWidth();
+        int height = map.getHeight();
+        long version = map.getVersion();
+        int[] goals = new int[goalXs.length];
+        for(int i=0; i<goals.length; i++) {
+            if(goalXs[i]<0 || goalXs[i]>=width || goalYs[i]<0 || goalYs[i]>=height) {
+                throw new IllegalArgumentException("(" + goalXs[i] + "," + goalYs[i] + ") is not on the map");
+            }
+            goals[i] = goalYs[i]*width + goalXs[i];
+        }
+        int[] distances = new int[width*height];
+        byte[] flow = new byte[width*height];
+        if(parallel) {
+            new DeltaStepping(width, height).fillDistanceField(map, goals, movement, distances, flow);
+        }
+        else {
+            Graph.engineFor(map).fillDistanceField(map, goals, movement, distances, flow);
+        }
+        return new DistanceField(width, height, version, movement, goals, distances, flow);
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Version of the map the field was built from
+    public long getMapVersion() {
+        return this.mapVersion;
+    }
+
+    public int getMovement() {
+        return this.movement;
+    }
+
+    //Distance from (x, y) to the nearest goal, or -1 if no goal can be reached from there
+    public int getDistance(int x, int y) {
+        int distance = this.distances[this.cell(x, y)];
+        return distance == Integer.MAX_VALUE ? -1 : distance;
+    }
+
+    //Direction (as in Neighbours) of the next step from (x, y) towards the nearest goal, or -1 on goals and on cells
+    //that can't reach one
+    public int getFlow(int x, int y) {
+        return this.flow[this.cell(x, y)];
+    }
+
+    //Find the path from (x, y) to its nearest goal by following the flow
+    public SearchResult pathFrom(int x, int y) {
+        int start = this.cell(x, y);
+        if(this.distances[start] == Integer.MAX_VALUE) {
+            return new SearchResult(this.width, new int[0], new int[0], -1, 0);
+        }
+        int length = 1;
+        for(int c = start; this.flow[c] != -1; c = this.step(c)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int c = start;
+        for(int i=0; i<length; i++) {
+            path[i] = c;
+            if(i+1 < length) {
+                c = this.step(c);
+            }
+        }
+        return new SearchResult(this.width, path, new int[0], this.distances[start], 0);
+    }
+
+    //Approximate number of bytes the field takes up
+    public long getMemoryUsage() {
+        return 5L*this.distances.length + 4L*this.goals.length + 64;
+    }
+
+    //Cell reached by following the flow out of cell c
+    private int step(int c) {
+        int d = this.flow[c];
+        return c + Neighbours.DY[d]*this.width + Neighbours.DX[d];
+    }
+
+    //Id of (x, y), checking that it lies on the map
+    private int cell(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            throw new IllegalArgumentException("(" + x + "," + y + ") is not on the map");
+        }
+        return y*this.width + x;
+    }
+}
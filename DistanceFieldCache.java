@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Least-recently-used cache of distance fields, keyed by map version, movement mode and goals
+//Fields of old map versions are never returned again, and fall out of the cache as newer fields push them out
+//The total size of the cached fields is kept within a memory budget. All methods are thread-safe
+public class DistanceFieldCache {
+
+    private final long memoryBudget;
+    private long memoryUsed;
+    private long hits;
+    private long misses;
+
+    //Cached fields, least recently used first
+    private final LinkedHashMap<Key, DistanceField> fields = new LinkedHashMap<Key, DistanceField>(16, 0.75f, true);
+
+    //Create a cache that holds at most memoryBudget bytes of fields
+    public DistanceFieldCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    //Return the field for a single goal, building it if it isn't cached
+    public DistanceField get(GridMap map, int movement, int goalX, int goalY) {
+        return this.get(map, movement, new int[] {goalX}, new int[] {goalY});
+    }
+
+    //Return the field for a set of goals, building it if it isn't cached
+    //Fields of maps without a version (see GridMap.getVersion) are built every time and never cached
+    public DistanceField get(GridMap map, int movement, int[] goalXs, int[] goalYs) {
+        long version = map.getVersion();
+        if(version == -1) {
+            return DistanceField.build(map, movement, goalXs, goalYs);
+        }
+        Key key = new Key(version, movement, goalIds(map, goalXs, goalYs));
+        synchronized(this) {
+            DistanceField field = this.fields.get(key);
+            if(field != null) {
+                this.hits++;
+                return field;
+            }
+            this.misses++;
+        }
+
+        //Build outside the lock, so other threads can keep using the cache. If two threads build the same field at
+        //once, the first one to finish is kept
+        DistanceField field = DistanceField.build(map, movement, goalXs, goalYs);
+        synchronized(this) {
+            DistanceField existing = this.fields.get(key);
+            if(existing != null) {
+                return existing;
+            }
+            if(field.getMemoryUsage() <= this.memoryBudget) {
+                this.fields.put(key, field);
+                this.memoryUsed += field.getMemoryUsage();
+                this.evict();
+            }
+        }
+        return field;
+    }
+
+    //Return the cached field for a single goal, or null if there isn't one
+    public synchronized DistanceField getIfPresent(GridMap map, int movement, int goalX, int goalY) {
+        long version = map.getVersion();
+        if(version == -1) {
+            return null;
+        }
+        return this.fields.get(new Key(version, movement, new int[] {goalY*map.getWidth() + goalX}));
+    }
+
+    //Answer a path query from a cached field for its goal if there is one, or with a normal search otherwise
+    //A cached field gives a shortest path, though not necessarily the one the search would have found
+    //Only A*, Dijkstra and Jump Point requests that neither record their visits nor have an observer are answered from
+    //the cache, as the others expect any-angle paths or the events of a search
+    public SearchResult findPath(GridMap map, SearchRequest request) {
+        int algorithm = request.getAlgorithm();
+        boolean gridPath = algorithm == Graph.A_STAR || algorithm == Graph.DIJKSTRA || algorithm == Graph.JUMP_POINT;
+        if(gridPath && !request.isRecordVisited() && request.getObserver() == null) {
+            DistanceField field = this.getIfPresent(map, request.getMovement(), request.getGoalX(), request.getGoalY());
+            if(field != null) {
+                return field.pathFrom(request.getSourceX(), request.getSourceY());
+            }
+        }
+        return Graph.findPath(map, request);
+    }
+
+    //Drop every cached field
+    public synchronized void clear() {
+        this.fields.clear();
+        this.memoryUsed = 0;
+    }
+
+    public synchronized int size() {
+        return this.fields.size();
+    }
+
+    //Number of bytes taken up by the cached fields
+    public synchronized long getMemoryUsed() {
+        return this.memoryUsed;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    //Remove least recently used fields until the cache is within its budget
+    private void evict() {
+        Iterator<Map.Entry<Key, DistanceField>> entries = this.fields.entrySet().iterator();
+        while(this.memoryUsed > this.memoryBudget && entries.hasNext()) {
+            this.memoryUsed -= entries.next().getValue().getMemoryUsage();
+            entries.remove();
+        }
+    }
+
+    //Goal cells as sorted ids, so the same set of goals always gives the same key
+    private static int[] goalIds(GridMap map, int[] goalXs, int[] goalYs) {
+        if(goalXs.length != goalYs.length) {
+            throw new IllegalArgumentException("Expected matching goal coordinates");
+        }
+        int[] goals = new int[goalXs.length];
+        for(int i=0; i<goals.length; i++) {
+            goals[i] = goalYs[i]*map.getWidth() + goalXs[i];
+        }
+        Arrays.sort(goals);
+        return goals;
+    }
+
+    private static final class Key {
+
+        private final long version;
+        private final int movement;
+        private final int[] goals;
+        private final int hash;
+
+        Key(long version, int movement, int[] goals) {
+            this.version = version;
+            this.movement = movement;
+            this.goals = goals;
+            this.hash = 31*(31*Long.hashCode(version) + movement) + Arrays.hashCode(goals);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return this.version == k.version && this.movement == k.movement && Arrays.equals(this.goals, k.goals);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+//Read-only view of a map's walkability, which is all a search needs to know about it
+//Implementations must be safe to read from several threads at once, and must not depend on AWT or Swing
+public interface GridMap {
+
+    //Number of columns in the map
+    int getWidth();
+
+    //Number of rows in the map
+    int getHeight();
+
+    //Return a stamp identifying the map's current contents, for caches of data computed from the map
+    //Two maps with the same stamp must hold exactly the same cells, and a map must change its stamp whenever one of
+    //its cells changes. Maps that can't guarantee this return -1, and nothing computed from them is cached
+    default long getVersion() {
+        return -1;
+    }
+
+    //Check whether (x, y) lies on the map and can be walked on. Coordinates off the map are never walkable
+    boolean isWalkable(int x, int y);
+
+    //Cost of entering (x, y), as a multiple of the cost of the move that enters it. Plain maps cost 1 everywhere
+    //Only A*, Dijkstra's algorithm and DistanceField take costs into account. The other Graph algorithms, smoothPath,
+    //NeighbourTable, Landmarks, HierarchicalMap, IncrementalPlanner, ContractionHierarchy and CooperativePlanner refuse
+    //maps with costs (see WeightedGridMap)
+    default int getCost(int x, int y) {
+        return 1;
+    }
+
+    //Upper bound of getCost over the whole map. Maps whose maximum cost is 1 are searched as unweighted
+    default int getMaxCost() {
+        return 1;
+    }
+
+    //Return the walkability of the 64 cells (x, y) to (x+63, y), with bit i set if cell (x+i, y) is walkable
+    //Compact maps override this to read whole words at once
+    default long walkableBits(int x, int y) {
+        long bits = 0;
+        for(int i=0; i<64; i++) {
+            if(this.isWalkable(x+i, y)) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    //Return a mask of the walkable neighbours of (x, y), laid out as described in Neighbours
+    default int neighbourBits(int x, int y) {
+        int bits = 0;
+        for(int d=0; d<8; d++) {
+            if(this.isWalkable(x + Neighbours.DX[d], y + Neighbours.DY[d])) {
+                bits |= 1 << d;
+            }
+        }
+        return bits;
+    }
+}
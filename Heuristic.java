@@ -0,0 +1,10 @@
+//Estimate of the cost of the cheapest path between two cells, used by A* searches in place of the movement mode's
+//built-in heuristic (see SearchRequest.withHeuristic)
+//To keep paths optimal, an estimate must never exceed the real cost under the request's movement mode, and must be
+//consistent: it may not drop by more than a move's cost between neighbouring cells. It is called from every thread
+//that searches, so it must be safe to call concurrently
+public interface Heuristic {
+
+    //Estimate the cost of the cheapest path from (x, y) to (goalX, goalY)
+    int estimate(int x, int y, int goalX, int goalY);
+}
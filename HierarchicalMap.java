@@ -0,0 +1,344 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+//Hierarchical abstraction of a map for HPA* (hierarchical path-finding A*)
+//The map is split into square clusters. Where two neighbouring clusters share an open stretch of border, cells on
+//either side of it become entrance nodes, linked by a single step. The shortest path between every two entrances of a
+//cluster that stays inside the cluster is precomputed. A query first searches this small abstract graph, then turns
+//the abstract path into cells one cluster at a time, using the same neighbour rules as the grid search
+//The abstraction is immutable once built, so it can be queried from many threads at once. It describes the map
+//version it was built from, and has to be rebuilt when the map changes
+public class HierarchicalMap {
+
+    //Entrances at least this long get a node at each end instead of one in the middle
+    private static final int LONG_ENTRANCE = 6;
+
+    private final GridMap map;
+    private final long mapVersion;
+    private final int movement;
+    private final int clusterSize;
+    private final int clustersX;
+
+    //Cell (y*width+x) of each abstract node
+    private final int[] nodeCells;
+
+    //Abstract nodes of each cluster
+    private final int[][] clusterNodes;
+
+    //Edges in compressed form: the edges of node n are edgeTargets[i] and edgeCosts[i] for i in [edgeStart[n], edgeStart[n+1])
+    private final int[] edgeStart;
+    private final int[] edgeTargets;
+    private final int[] edgeCosts;
+
+    private HierarchicalMap(GridMap map, int movement, int clusterSize, int clustersX, int[] nodeCells, int[][] clusterNodes,
+            int[] edgeStart, int[] edgeTargets, int[] edgeCosts) {
+        this.map = map;
+        this.mapVersion = map.getVersion();
+        this.movement = movement;
+        this.clusterSize = clusterSize;
+        this.clustersX = clustersX;
+        this.nodeCells = nodeCells;
+        this.clusterNodes = clusterNodes;
+        this.edgeStart = edgeStart;
+        this.edgeTargets = edgeTargets;
+        this.edgeCosts = edgeCosts;
+    }
+
+    //Build the abstraction of a map, with clusters of clusterSize x clusterSize cells
+    //The map must not change while the abstraction is in use
+    public static HierarchicalMap build(GridMap map, int clusterSize, int movement) {
+        if(clusterSize < 2) {
+            throw new IllegalArgumentException("Clusters must be at least 2 cells wide");
+        }
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        //Border edges and refined paths are costed as if every cell cost 1
+        if(map.getMaxCost() > 1) {
+            throw new IllegalArgumentException("Hierarchical maps can't be built for a map with costs");
+        }
+        int width = map.getWidth();
+        int height = map.getHeight();
+        int clustersX = (width + clusterSize - 1) / clusterSize;
+        int clustersY = (height + clusterSize - 1) / clusterSize;
+
+        //Find the entrances along every border between two clusters, and link the cells on either side
+        HashMap<Integer, Integer> nodeIds = new HashMap<Integer, Integer>();
+        IntList nodeCells = new IntList();
+        IntList edgeFrom = new IntList();
+        IntList edgeTo = new IntList();
+        IntList edgeCost = new IntList();
+        for(int cy=0; cy<clustersY; cy++) {
+            for(int cx=0; cx<clustersX; cx++) {
+                int minX = cx*clusterSize;
+                int minY = cy*clusterSize;
+                int maxX = Math.min(width, minX + clusterSize) - 1;
+                int maxY = Math.min(height, minY + clusterSize) - 1;
+                //Border with the cluster to the right
+                if(maxX + 1 < width) {
+                    addEntrances(map, maxX, minY, 1, 0, 0, 1, maxY - minY + 1, width, nodeIds, nodeCells, edgeFrom, edgeTo, edgeCost);
+                }
+                //Border with the cluster below
+                if(maxY + 1 < height) {
+                    addEntrances(map, minX, maxY, 0, 1, 1, 0, maxX - minX + 1, width, nodeIds, nodeCells, edgeFrom, edgeTo, edgeCost);
+                }
+            }
+        }
+
+        //Group the nodes by cluster
+        int[] cells = nodeCells.toArray();
+        int[] clusterCounts = new int[clustersX*clustersY];
+        for(int cell : cells) {
+            clusterCounts[clusterOf(cell, width, clusterSize, clustersX)]++;
+        }
+        int[][] clusterNodes = new int[clusterCounts.length][];
+        for(int c=0; c<clusterNodes.length; c++) {
+            clusterNodes[c] = new int[clusterCounts[c]];
+            clusterCounts[c] = 0;
+        }
+        for(int n=0; n<cells.length; n++) {
+            int c = clusterOf(cells[n], width, clusterSize, clustersX);
+            clusterNodes[c][clusterCounts[c]++] = n;
+        }
+
+        //Link the nodes of each cluster by their shortest paths inside the cluster
+        SearchEngine engine = Graph.engineFor(map);
+        for(int c=0; c<clusterNodes.length; c++) {
+            int minX = (c % clustersX)*clusterSize;
+            int minY = (c / clustersX)*clusterSize;
+            int maxX = Math.min(width, minX + clusterSize) - 1;
+            int maxY = Math.min(height, minY + clusterSize) - 1;
+            for(int from : clusterNodes[c]) {
+                engine.searchRegion(map, cells[from], minX, minY, maxX, maxY, movement);
+                for(int to : clusterNodes[c]) {
+                    int distance = engine.regionDistance(cells[to]);
+                    if(to != from && distance != -1) {
+                        edgeFrom.add(from);
+                        edgeTo.add(to);
+                        edgeCost.add(distance);
+                    }
+                }
+            }
+        }
+
+        //Compress the edge lists
+        int[] edgeStart = new int[cells.length + 1];
+        for(int i=0; i<edgeFrom.size(); i++) {
+            edgeStart[edgeFrom.get(i) + 1]++;
+        }
+        for(int n=0; n<cells.length; n++) {
+            edgeStart[n+1] += edgeStart[n];
+        }
+        int[] next = Arrays.copyOf(edgeStart, cells.length);
+        int[] edgeTargets = new int[edgeFrom.size()];
+        int[] edgeCosts = new int[edgeFrom.size()];
+        for(int i=0; i<edgeFrom.size(); i++) {
+            int slot = next[edgeFrom.get(i)]++;
+            edgeTargets[slot] = edgeTo.get(i);
+            edgeCosts[slot] = edgeCost.get(i);
+        }
+        return new HierarchicalMap(map, movement, clusterSize, clustersX, cells, clusterNodes, edgeStart, edgeTargets, edgeCosts);
+    }
+
+    //Scan a border of the given length, starting at (x, y) on the near side and moving (stepX, stepY) along it, with the
+    //far side at offset (acrossX, acrossY). Every open stretch becomes one or two pairs of linked nodes
+    private static void addEntrances(GridMap map, int x, int y, int acrossX, int acrossY, int stepX, int stepY, int length,
+            int width, HashMap<Integer, Integer> nodeIds, IntList nodeCells, IntList edgeFrom, IntList edgeTo, IntList edgeCost) {
+        int start = -1;
+        for(int i=0; i<=length; i++) {
+            int nearX = x + i*stepX;
+            int nearY = y + i*stepY;
+            boolean open = i < length && map.isWalkable(nearX, nearY) && map.isWalkable(nearX + acrossX, nearY + acrossY);
+            if(open && start == -1) {
+                start = i;
+            }
+            else if(!open && start != -1) {
+                int end = i - 1;
+                if(end - start + 1 >= LONG_ENTRANCE) {
+                    addTransition(x + start*stepX, y + start*stepY, acrossX, acrossY, width, nodeIds, nodeCells, edgeFrom, edgeTo, edgeCost);
+                    addTransition(x + end*stepX, y + end*stepY, acrossX, acrossY, width, nodeIds, nodeCells, edgeFrom, edgeTo, edgeCost);
+                }
+                else {
+                    int middle = (start + end) / 2;
+                    addTransition(x + middle*stepX, y + middle*stepY, acrossX, acrossY, width, nodeIds, nodeCells, edgeFrom, edgeTo, edgeCost);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    //Create (or reuse) nodes for a cell and the cell across the border from it, and link them both ways
+    private static void addTransition(int x, int y, int acrossX, int acrossY, int width, HashMap<Integer, Integer> nodeIds,
+            IntList nodeCells, IntList edgeFrom, IntList edgeTo, IntList edgeCost) {
+        int near = nodeFor(y*width + x, nodeIds, nodeCells);
+        int far = nodeFor((y + acrossY)*width + x + acrossX, nodeIds, nodeCells);
+        edgeFrom.add(near);
+        edgeTo.add(far);
+        edgeCost.add(Movement.STRAIGHT_COST);
+        edgeFrom.add(far);
+        edgeTo.add(near);
+        edgeCost.add(Movement.STRAIGHT_COST);
+    }
+
+    private static int nodeFor(int cell, HashMap<Integer, Integer> nodeIds, IntList nodeCells) {
+        Integer id = nodeIds.get(cell);
+        if(id == null) {
+            id = nodeCells.size();
+            nodeIds.put(cell, id);
+            nodeCells.add(cell);
+        }
+        return id;
+    }
+
+    private static int clusterOf(int cell, int width, int clusterSize, int clustersX) {
+        return (cell / width / clusterSize)*clustersX + (cell % width) / clusterSize;
+    }
+
+    public int getClusterSize() {
+        return this.clusterSize;
+    }
+
+    public int getMovement() {
+        return this.movement;
+    }
+
+    //Version of the map the abstraction was built from
+    public long getMapVersion() {
+        return this.mapVersion;
+    }
+
+    //Number of entrance nodes in the abstract graph
+    public int getNodeCount() {
+        return this.nodeCells.length;
+    }
+
+    //Number of (directed) edges in the abstract graph
+    public int getEdgeCount() {
+        return this.edgeTargets.length;
+    }
+
+    //Find an abstract path from (sourceX, sourceY) to (goalX, goalY). Its cells are filled in by refining it
+    //The path is near-optimal: it only crosses cluster borders through entrance nodes, straight across the border
+    public HierarchicalPath findPath(int sourceX, int sourceY, int goalX, int goalY) {
+        int width = this.map.getWidth();
+        if(sourceX<0 || sourceX>=width || sourceY<0 || sourceY>=this.map.getHeight()
+                || goalX<0 || goalX>=width || goalY<0 || goalY>=this.map.getHeight()) {
+            throw new IllegalArgumentException("Source and goal must lie on the map");
+        }
+        int source = sourceY*width + sourceX;
+        int goal = goalY*width + goalX;
+        int nodeCount = this.nodeCells.length;
+        //The source and goal join the abstract graph as two extra nodes for the length of the query
+        int sourceNode = nodeCount;
+        int goalNode = nodeCount + 1;
+
+        //Link the source and goal to the entrances of their clusters
+        SearchEngine engine = Graph.engineFor(this.map);
+        int[] sourceCosts = this.linkToCluster(engine, source);
+        int[] goalCosts = this.linkToCluster(engine, goal);
+        int directCost = -1;
+        if(this.clusterOf(source) == this.clusterOf(goal)) {
+            this.searchCluster(engine, source);
+            directCost = engine.regionDistance(goal);
+        }
+
+        //Run A* over the abstract graph
+        int[] distances = new int[nodeCount + 2];
+        int[] parent = new int[nodeCount + 2];
+        boolean[] closed = new boolean[nodeCount + 2];
+        IndexedMinHeap open = new IndexedMinHeap(nodeCount + 2);
+        distances[sourceNode] = 0;
+        parent[sourceNode] = -1;
+        open.add(sourceNode, 0);
+        int[] sourceCluster = this.clusterNodes[this.clusterOf(source)];
+        int[] goalCluster = this.clusterNodes[this.clusterOf(goal)];
+        while(!open.isEmpty()) {
+            int node = open.poll();
+            closed[node] = true;
+            if(node == goalNode) {
+                break;
+            }
+            if(node == sourceNode) {
+                for(int i=0; i<sourceCluster.length; i++) {
+                    this.relax(sourceNode, sourceCluster[i], sourceCosts[i], goal, distances, parent, closed, open);
+                }
+                if(directCost != -1) {
+                    this.relax(sourceNode, goalNode, directCost, goal, distances, parent, closed, open);
+                }
+                continue;
+            }
+            for(int e=this.edgeStart[node]; e<this.edgeStart[node+1]; e++) {
+                this.relax(node, this.edgeTargets[e], this.edgeCosts[e], goal, distances, parent, closed, open);
+            }
+            //Entrances of the goal's cluster can also step down to the goal itself
+            if(this.clusterOf(this.nodeCells[node]) == this.clusterOf(goal)) {
+                for(int i=0; i<goalCluster.length; i++) {
+                    if(goalCluster[i] == node) {
+                        this.relax(node, goalNode, goalCosts[i], goal, distances, parent, closed, open);
+                    }
+                }
+            }
+        }
+
+        if(!closed[goalNode]) {
+            return new HierarchicalPath(this.map, this.movement, this.clusterSize, new int[0], -1);
+        }
+        int length = 0;
+        for(int node = goalNode; node != -1; node = parent[node]) {
+            length++;
+        }
+        int[] waypoints = new int[length];
+        for(int node = goalNode; node != -1; node = parent[node]) {
+            waypoints[--length] = node == sourceNode ? source : node == goalNode ? goal : this.nodeCells[node];
+        }
+        return new HierarchicalPath(this.map, this.movement, this.clusterSize, waypoints, distances[goalNode]);
+    }
+
+    //Relax the abstract edge from node to target, using the octile (or matching) distance to the goal as heuristic
+    private void relax(int node, int target, int cost, int goal, int[] distances, int[] parent, boolean[] closed, IndexedMinHeap open) {
+        if(cost < 0 || closed[target]) {
+            return;
+        }
+        int distance = distances[node] + cost;
+        boolean queued = open.contains(target);
+        if(queued && distance >= distances[target]) {
+            return;
+        }
+        distances[target] = distance;
+        parent[target] = node;
+        int width = this.map.getWidth();
+        int cell = target < this.nodeCells.length ? this.nodeCells[target] : goal;
+        int key = distance + Movement.heuristic(this.movement, goal % width - cell % width, goal / width - cell / width);
+        if(queued) {
+            open.decreaseKey(target, key);
+        }
+        else {
+            open.add(target, key);
+        }
+    }
+
+    //Return the cost from a cell to every entrance of its cluster (-1 where there is no path inside the cluster)
+    private int[] linkToCluster(SearchEngine engine, int cell) {
+        int[] nodes = this.clusterNodes[this.clusterOf(cell)];
+        int[] costs = new int[nodes.length];
+        this.searchCluster(engine, cell);
+        for(int i=0; i<nodes.length; i++) {
+            costs[i] = engine.regionDistance(this.nodeCells[nodes[i]]);
+        }
+        return costs;
+    }
+
+    //Run a search from a cell over its whole cluster
+    private void searchCluster(SearchEngine engine, int cell) {
+        int width = this.map.getWidth();
+        int minX = (cell % width) / this.clusterSize * this.clusterSize;
+        int minY = (cell / width) / this.clusterSize * this.clusterSize;
+        int maxX = Math.min(width, minX + this.clusterSize) - 1;
+        int maxY = Math.min(this.map.getHeight(), minY + this.clusterSize) - 1;
+        engine.searchRegion(this.map, cell, minX, minY, maxX, maxY, this.movement);
+    }
+
+    private int clusterOf(int cell) {
+        return clusterOf(cell, this.map.getWidth(), this.clusterSize, this.clustersX);
+    }
+}
@@ -0,0 +1,88 @@
+//Abstract path found by HierarchicalMap: a list of waypoints (source, entrances crossed, goal) with its total cost
+//Consecutive waypoints are either in the same cluster or straight across a cluster border from each other, so each
+//segment is refined with a search confined to one cluster. Segments can be refined lazily, one at a time as a
+//follower reaches them, or all at once
+public final class HierarchicalPath {
+
+    private final GridMap map;
+    private final int movement;
+    private final int clusterSize;
+    private final int[] waypoints;
+    private final int cost;
+
+    HierarchicalPath(GridMap map, int movement, int clusterSize, int[] waypoints, int cost) {
+        this.map = map;
+        this.movement = movement;
+        this.clusterSize = clusterSize;
+        this.waypoints = waypoints;
+        this.cost = cost;
+    }
+
+    //Check whether a path to the goal was found
+    public boolean isFound() {
+        return this.waypoints.length > 0;
+    }
+
+    //Cost of the full path once refined, or -1 if no path was found
+    public int getCost() {
+        return this.cost;
+    }
+
+    public int getWaypointCount() {
+        return this.waypoints.length;
+    }
+
+    public int getWaypointX(int i) {
+        return this.waypoints[i] % this.map.getWidth();
+    }
+
+    public int getWaypointY(int i) {
+        return this.waypoints[i] / this.map.getWidth();
+    }
+
+    //Number of segments, each running from one waypoint to the next
+    public int getSegmentCount() {
+        return Math.max(0, this.waypoints.length - 1);
+    }
+
+    //Find the cells of segment i, from waypoint i to waypoint i+1 (both included)
+    public SearchResult refineSegment(int i) {
+        int width = this.map.getWidth();
+        int from = this.waypoints[i];
+        int to = this.waypoints[i+1];
+        int fromX = from % width;
+        int fromY = from / width;
+        int toX = to % width;
+        int toY = to / width;
+        if(fromX / this.clusterSize != toX / this.clusterSize || fromY / this.clusterSize != toY / this.clusterSize) {
+            //A step across a cluster border
+            return new SearchResult(width, new int[] {from, to}, new int[0], Movement.STRAIGHT_COST, 0);
+        }
+        int minX = fromX / this.clusterSize * this.clusterSize;
+        int minY = fromY / this.clusterSize * this.clusterSize;
+        int maxX = Math.min(width, minX + this.clusterSize) - 1;
+        int maxY = Math.min(this.map.getHeight(), minY + this.clusterSize) - 1;
+        SearchRequest request = new SearchRequest(fromX, fromY, toX, toY, Graph.A_STAR).withMovement(this.movement);
+        return Graph.engineFor(this.map).searchWithin(this.map, request, minX, minY, maxX, maxY);
+    }
+
+    //Refine every segment, and return the whole path from source to goal
+    public SearchResult refineAll() {
+        int width = this.map.getWidth();
+        if(!this.isFound()) {
+            return new SearchResult(width, new int[0], new int[0], -1, 0);
+        }
+        IntList cells = new IntList();
+        cells.add(this.waypoints[0]);
+        int nodesExpanded = 0;
+        for(int i=0; i<this.getSegmentCount(); i++) {
+            SearchResult segment = this.refineSegment(i);
+            nodesExpanded += segment.getNodesExpanded();
+            //Each segment starts where the previous one ended
+            for(int j=1; j<segment.getPathLength(); j++) {
+                cells.add(segment.getPathY(j)*width + segment.getPathX(j));
+            }
+        }
+        return new SearchResult(width, cells.toArray(), new int[0], this.cost, nodesExpanded);
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Lock-free histogram of non-negative longs, in power-of-two buckets
+//Bucket b counts the values whose highest set bit is bit b-1 (bucket 0 counts zeros), so a percentile is only known to
+//within a factor of 2, but recording a value is a few atomic adds and the histogram never grows
+final class Histogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(65);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if(value < 0) {
+            return;
+        }
+        this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        long current = this.max.get();
+        while(value > current && !this.max.compareAndSet(current, value)) {
+            current = this.max.get();
+        }
+    }
+
+    long getCount() {
+        return this.count.get();
+    }
+
+    long getSum() {
+        return this.sum.get();
+    }
+
+    long getMax() {
+        return this.max.get();
+    }
+
+    double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : (double)this.sum.get() / count;
+    }
+
+    //Upper bound of the bucket holding the given fraction (0 to 1) of the values, capped at the largest value seen
+    long getPercentile(double fraction) {
+        long count = this.count.get();
+        if(count == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(fraction * count);
+        long seen = 0;
+        for(int b=0; b<65; b++) {
+            seen += this.buckets.get(b);
+            if(seen >= rank && seen > 0) {
+                long upper = b == 0 ? 0 : b == 64 ? Long.MAX_VALUE : (1L << b) - 1;
+                return Math.min(upper, this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    //Counts of every bucket, for exporting the whole distribution
+    long[] getBuckets() {
+        long[] counts = new long[65];
+        for(int b=0; b<65; b++) {
+            counts[b] = this.buckets.get(b);
+        }
+        return counts;
+    }
+
+    void reset() {
+        for(int b=0; b<65; b++) {
+            this.buckets.set(b, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.Arrays;
+
+//Incremental planner based on D* Lite, for maps whose walls keep changing
+//The planner keeps its shortest-path tree between calls. It searches backwards from the goal, so the tree stays
+//valid as the source moves along the path. After cells change, only the part of the tree that depends on them is
+//repaired, which usually takes a small fraction of the work of a new search
+//A planner is not thread-safe. It reads the map it was given on every call, so the caller edits that map directly
+//(for example a BitGridMap) and then tells the planner which cells changed
+public class IncrementalPlanner {
+
+    //Distance of cells that can't reach the goal. Small enough that adding a move cost can't overflow
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    //Costs of the last repair next to the costs of solving the same query from scratch
+    public static final class Report {
+
+        private final SearchResult result;
+        private final int repairExpansions;
+        private final long repairNanos;
+        private final int fullSearchExpansions;
+        private final long fullSearchNanos;
+
+        Report(SearchResult result, int repairExpansions, long repairNanos, int fullSearchExpansions, long fullSearchNanos) {
+            this.result = result;
+            this.repairExpansions = repairExpansions;
+            this.repairNanos = repairNanos;
+            this.fullSearchExpansions = fullSearchExpansions;
+            this.fullSearchNanos = fullSearchNanos;
+        }
+
+        //The repaired path
+        public SearchResult getResult() {
+            return this.result;
+        }
+
+        //Nodes expanded, and time taken, by the repair
+        public int getRepairExpansions() {
+            return this.repairExpansions;
+        }
+
+        public long getRepairNanos() {
+            return this.repairNanos;
+        }
+
+        //Nodes expanded, and time taken, by an A* search from scratch on the changed map
+        public int getFullSearchExpansions() {
+            return this.fullSearchExpansions;
+        }
+
+        public long getFullSearchNanos() {
+            return this.fullSearchNanos;
+        }
+    }
+
+    private final GridMap map;
+    private final int movement;
+    private final int allowedMoves;
+    private final int width;
+    private final int goal;
+    private int source;
+
+    //Offset added to every key after the source moves, so keys already in the heap stay valid lower bounds
+    private int keyModifier;
+
+    //Cost-to-goal estimates: g is the settled value, rhs the one-step lookahead value. A cell is consistent when they match
+    private final int[] g;
+    private final int[] rhs;
+    private final IndexedMinHeap open;
+
+    //Nodes expanded by the last call
+    private int lastExpansions;
+
+    public IncrementalPlanner(GridMap map, int movement, int sourceX, int sourceY, int goalX, int goalY) {
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        if(map.getMaxCost() > 1) {
+            throw new IllegalArgumentException("Incremental planning doesn't support maps with costs");
+        }
+        this.map = map;
+        this.movement = movement;
+        this.allowedMoves = Movement.allowedMoves(movement);
+        this.width = map.getWidth();
+        this.source = this.cell(sourceX, sourceY);
+        this.goal = this.cell(goalX, goalY);
+        this.g = new int[this.width*map.getHeight()];
+        this.rhs = new int[this.g.length];
+        this.open = new IndexedMinHeap(this.g.length);
+        Arrays.fill(this.g, INFINITY);
+        Arrays.fill(this.rhs, INFINITY);
+        this.rhs[this.goal] = 0;
+        this.open.add(this.goal, this.key(this.goal));
+    }
+
+    //Find the path for the current map. The first call does a full search, and later calls repair what is left to do
+    public SearchResult plan() {
+        this.lastExpansions = this.computeShortestPath();
+        return this.extractPath();
+    }
+
+    //Move the source, for example as an agent follows the path. The tree is kept as it is
+    public void moveSource(int x, int y) {
+        int newSource = this.cell(x, y);
+        this.keyModifier += this.heuristic(this.source, newSource);
+        this.source = newSource;
+    }
+
+    //Tell the planner that the walkability of the given cells changed, and repair the path
+    public SearchResult replan(int[] changedXs, int[] changedYs) {
+        if(changedXs.length != changedYs.length) {
+            throw new IllegalArgumentException("Expected matching changed cell coordinates");
+        }
+        //A changed cell affects moves into and out of it, and diagonal moves around its corners. All of them start
+        //in the cell itself or one of its neighbours, so those are the only cells whose lookahead needs recomputing
+        for(int i=0; i<changedXs.length; i++) {
+            for(int dy=-1; dy<=1; dy++) {
+                for(int dx=-1; dx<=1; dx++) {
+                    int x = changedXs[i] + dx;
+                    int y = changedYs[i] + dy;
+                    if(x>=0 && x<this.width && y>=0 && y<this.map.getHeight()) {
+                        int u = y*this.width + x;
+                        if(u != this.goal) {
+                            this.rhs[u] = this.bestLookahead(u);
+                        }
+                        this.updateVertex(u);
+                    }
+                }
+            }
+        }
+        return this.plan();
+    }
+
+    //Repair the path after the given cells changed, and also solve the query from scratch to compare the costs
+    public Report replanAndCompare(int[] changedXs, int[] changedYs) {
+        long start = System.nanoTime();
+        SearchResult result = this.replan(changedXs, changedYs);
+        long repairNanos = System.nanoTime() - start;
+        int repairExpansions = this.lastExpansions;
+
+        SearchRequest request = new SearchRequest(this.source % this.width, this.source / this.width,
+                this.goal % this.width, this.goal / this.width, Graph.A_STAR).withMovement(this.movement);
+        start = System.nanoTime();
+        SearchResult full = Graph.findPath(this.map, request);
+        long fullNanos = System.nanoTime() - start;
+        return new Report(result, repairExpansions, repairNanos, full.getNodesExpanded(), fullNanos);
+    }
+
+    //Nodes expanded by the last call to plan or replan
+    public int getLastExpansions() {
+        return this.lastExpansions;
+    }
+
+    //Expand inconsistent cells in key order until the source is consistent and nothing cheaper is left to fix
+    private int computeShortestPath() {
+        int expansions = 0;
+        while(!this.open.isEmpty() && (this.open.peekKey() < this.key(this.source) || this.rhs[this.source] > this.g[this.source])) {
+            int u = this.open.peek();
+            long oldKey = this.open.peekKey();
+            long newKey = this.key(u);
+            if(oldKey < newKey) {
+                //The key is stale since the source moved
+                this.open.update(u, newKey);
+                continue;
+            }
+            expansions++;
+            int x = u % this.width;
+            int y = u / this.width;
+            int moves = Neighbours.legalMoves(this.map.neighbourBits(x, y)) & this.allowedMoves;
+            if(this.g[u] > this.rhs[u]) {
+                //Overconsistent: the cell got cheaper, so settle it and pass the improvement on to its neighbours
+                this.g[u] = this.rhs[u];
+                this.open.remove(u);
+                if(!this.map.isWalkable(x, y)) {
+                    continue;
+                }
+                while(moves != 0) {
+                    int d = Integer.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    int s = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+                    int cost = Movement.cost(this.movement, d) + this.g[u];
+                    if(s != this.goal && cost < this.rhs[s]) {
+                        this.rhs[s] = cost;
+                        this.updateVertex(s);
+                    }
+                }
+            }
+            else {
+                //Underconsistent: the cell got more expensive, so reset it and recompute everything that relied on it
+                this.g[u] = INFINITY;
+                if(u != this.goal) {
+                    this.rhs[u] = this.bestLookahead(u);
+                }
+                this.updateVertex(u);
+                while(moves != 0) {
+                    int d = Integer.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    int s = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+                    if(s != this.goal) {
+                        this.rhs[s] = this.bestLookahead(s);
+                        this.updateVertex(s);
+                    }
+                }
+            }
+        }
+        return expansions;
+    }
+
+    //Cheapest cost to the goal through any neighbour of u, by their current g values
+    private int bestLookahead(int u) {
+        int x = u % this.width;
+        int y = u / this.width;
+        if(!this.map.isWalkable(x, y)) {
+            return INFINITY;
+        }
+        int best = INFINITY;
+        int moves = Neighbours.legalMoves(this.map.neighbourBits(x, y)) & this.allowedMoves;
+        while(moves != 0) {
+            int d = Integer.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            int s = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+            best = Math.min(best, Movement.cost(this.movement, d) + this.g[s]);
+        }
+        return Math.min(best, INFINITY);
+    }
+
+    //Put u in the heap if it is inconsistent, and take it out if it isn't
+    private void updateVertex(int u) {
+        boolean queued = this.open.contains(u);
+        if(this.g[u] != this.rhs[u]) {
+            if(queued) {
+                this.open.update(u, this.key(u));
+            }
+            else {
+                this.open.add(u, this.key(u));
+            }
+        }
+        else if(queued) {
+            this.open.remove(u);
+        }
+    }
+
+    //Priority of a cell: its estimated total path cost through it, then its cost to the goal, packed into a long
+    private long key(int u) {
+        int best = Math.min(this.g[u], this.rhs[u]);
+        long total = (long)best + this.heuristic(this.source, u) + this.keyModifier;
+        return (total << 32) | best;
+    }
+
+    private int heuristic(int from, int to) {
+        return Movement.heuristic(this.movement, to % this.width - from % this.width, to / this.width - from / this.width);
+    }
+
+    //Follow the cheapest neighbours from the source down to the goal
+    private SearchResult extractPath() {
+        //The search stops once the source's lookahead value is settled, so that is its cost to the goal
+        if(this.rhs[this.source] >= INFINITY || !this.map.isWalkable(this.source % this.width, this.source / this.width)) {
+            return new SearchResult(this.width, new int[0], new int[0], -1, this.lastExpansions);
+        }
+        IntList path = new IntList();
+        int u = this.source;
+        path.add(u);
+        while(u != this.goal) {
+            int x = u % this.width;
+            int y = u / this.width;
+            int next = -1;
+            int best = INFINITY;
+            int moves = Neighbours.legalMoves(this.map.neighbourBits(x, y)) & this.allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int s = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+                int cost = Movement.cost(this.movement, d) + this.g[s];
+                if(cost < best) {
+                    best = cost;
+                    next = s;
+                }
+            }
+            //Can't happen once the tree is consistent, but never loop forever on a broken one
+            if(next == -1 || path.size() > this.g.length) {
+                return new SearchResult(this.width, new int[0], new int[0], -1, this.lastExpansions);
+            }
+            u = next;
+            path.add(u);
+        }
+        return new SearchResult(this.width, path.toArray(), new int[0], this.rhs[this.source], this.lastExpansions);
+    }
+
+    private int cell(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.map.getHeight()) {
+            throw new IllegalArgumentException("(" + x + "," + y + ") is not on the map");
+        }
+        return y*this.width + x;
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+//Binary min-heap over primitive node ids in the range [0, capacity)
+//Each id can be in the heap at most once. Its slot is tracked in a position table, so looking an id up is O(1)
+//and lowering its priority (decrease-key) is O(log n), with no linear scan and no per-entry allocation
+//Priorities are longs, so callers can pack a second, tie-breaking key into the low bits
+public class IndexedMinHeap implements OpenList {
+
+    //Heap-ordered node ids and their priorities
+    private int[] nodes;
+    private long[] keys;
+    private int size;
+
+    //Slot of every node id in the heap, or -1 if the node is not in the heap
+    private final int[] positions;
+
+    //Operation counts since the last clear, for search statistics
+    private int adds;
+    private int decreases;
+    private int peakSize;
+
+    public IndexedMinHeap(int capacity) {
+        this.nodes = new int[Math.min(capacity, 64)];
+        this.keys = new long[this.nodes.length];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, -1);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    //Check whether a node is currently in the heap
+    @Override
+    public boolean contains(int node) {
+        return this.positions[node] != -1;
+    }
+
+    //Return the priority of a node that is in the heap
+    public long getKey(int node) {
+        return this.keys[this.positions[node]];
+    }
+
+    //Return the lowest priority in the heap (the heap must not be empty)
+    public long peekKey() {
+        return this.keys[0];
+    }
+
+    //Add a node that is not yet in the heap
+    @Override
+    public void add(int node, long key) {
+        if(this.size == this.nodes.length) {
+            int newLength = (int)Math.min((long)this.size*2, (long)this.positions.length);
+            this.nodes = Arrays.copyOf(this.nodes, newLength);
+            this.keys = Arrays.copyOf(this.keys, newLength);
+        }
+        this.siftUp(this.size++, node, key);
+        this.adds++;
+        if(this.size > this.peakSize) {
+            this.peakSize = this.size;
+        }
+    }
+
+    //Lower the priority of a node that is already in the heap
+    @Override
+    public void decreaseKey(int node, long key) {
+        this.siftUp(this.positions[node], node, key);
+        this.decreases++;
+    }
+
+    //Change the priority of a node that is already in the heap, whether it goes up or down
+    public void update(int node, long key) {
+        int i = this.positions[node];
+        if(key < this.keys[i]) {
+            this.siftUp(i, node, key);
+        }
+        else {
+            this.siftDown(i, node, key);
+        }
+    }
+
+    //Remove a node that is in the heap
+    public void remove(int node) {
+        int i = this.positions[node];
+        this.positions[node] = -1;
+        this.size--;
+        if(i == this.size) {
+            return;
+        }
+        //Move the last entry into the freed slot, then restore the heap order around it
+        int last = this.nodes[this.size];
+        long lastKey = this.keys[this.size];
+        if(i > 0 && lastKey < this.keys[(i-1) >>> 1]) {
+            this.siftUp(i, last, lastKey);
+        }
+        else {
+            this.siftDown(i, last, lastKey);
+        }
+    }
+
+    //Return the node with the lowest priority without removing it (the heap must not be empty)
+    public int peek() {
+        return this.nodes[0];
+    }
+
+    //Remove and return the node with the lowest priority
+    @Override
+    public int poll() {
+        int top = this.nodes[0];
+        this.positions[top] = -1;
+        this.size--;
+        if(this.size > 0) {
+            this.siftDown(0, this.nodes[this.size], this.keys[this.size]);
+        }
+        return top;
+    }
+
+    //Empty the heap and its operation counts. Only the slots still in use are reset, so this is O(size) rather than
+    //O(capacity)
+    @Override
+    public void clear() {
+        for(int i=0; i<this.size; i++) {
+            this.positions[this.nodes[i]] = -1;
+        }
+        this.size = 0;
+        this.adds = 0;
+        this.decreases = 0;
+        this.peakSize = 0;
+    }
+
+    //Number of nodes added since the last clear
+    @Override
+    public int getAddCount() {
+        return this.adds;
+    }
+
+    //Number of decrease-keys since the last clear
+    @Override
+    public int getDecreaseKeyCount() {
+        return this.decreases;
+    }
+
+    //Largest size the heap reached since the last clear
+    @Override
+    public int getPeakSize() {
+        return this.peakSize;
+    }
+
+    //Move an entry up from slot i until its parent has a lower or equal priority
+    private void siftUp(int i, int node, long key) {
+        while(i > 0) {
+            int p = (i-1) >>> 1;
+            if(this.keys[p] <= key) {
+                break;
+            }
+            this.nodes[i] = this.nodes[p];
+            this.keys[i] = this.keys[p];
+            this.positions[this.nodes[i]] = i;
+            i = p;
+        }
+        this.nodes[i] = node;
+        this.keys[i] = key;
+        this.positions[node] = i;
+    }
+
+    //Move an entry down from slot i until both of its children have a higher or equal priority
+    private void siftDown(int i, int node, long key) {
+        while(true) {
+            int c = 2*i + 1;
+            if(c >= this.size) {
+                break;
+            }
+            if(c+1 < this.size && this.keys[c+1] < this.keys[c]) {
+                c++;
+            }
+            if(key <= this.keys[c]) {
+                break;
+            }
+            this.nodes[i] = this.nodes[c];
+            this.keys[i] = this.keys[c];
+            this.positions[this.nodes[i]] = i;
+            i = c;
+        }
+        this.nodes[i] = node;
+        this.keys[i] = key;
+        this.positions[node] = i;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+//Growable list of primitive ints, for building the arrays used by preprocessed search structures without boxing
+final class IntList {
+
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(16);
+    }
+
+    IntList(int capacity) {
+        this.values = new int[Math.max(capacity, 4)];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int get(int i) {
+        return this.values[i];
+    }
+
+    void set(int i, int value) {
+        this.values[i] = value;
+    }
+
+    void add(int value) {
+        if(this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.size*2);
+        }
+        this.values[this.size++] = value;
+    }
+
+    //Append every value of other
+    void addAll(IntList other) {
+        if(this.size + other.size > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(this.size + other.size, this.size*2));
+        }
+        System.arraycopy(other.values, 0, this.values, this.size, other.size);
+        this.size += other.size;
+    }
+
+    //Drop every value from index size onwards
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    void clear() {
+        this.size = 0;
+    }
+
+    //Return the values as an array of exactly size() elements
+    int[] toArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+}
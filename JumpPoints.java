@@ -0,0 +1,160 @@
+//Successor rules for Jump Point Search on grids where diagonal moves may not cut corners
+//Straight jumps along a row scan 64 cells per step using the map's walkableBits, so on BitGridMap a long open
+//corridor costs a handful of word operations rather than one lookup per cell
+final class JumpPoints {
+
+    private JumpPoints() {
+    }
+
+    //Return the mask of directions worth searching from (x, y), given the direction (dx, dy) of the jump that
+    //reached it. Neighbours that can be reached at least as cheaply without passing through (x, y) are pruned
+    static int prunedDirections(GridMap map, int x, int y, int dx, int dy) {
+        int walkable = map.neighbourBits(x, y);
+        //The source has no parent, so every legal move is searched
+        if(dx == 0 && dy == 0) {
+            return Neighbours.legalMoves(walkable);
+        }
+        int directions = 0;
+        if(dx != 0 && dy != 0) {
+            boolean vertical = isSet(walkable, 0, dy);
+            boolean horizontal = isSet(walkable, dx, 0);
+            if(vertical) {
+                directions |= bit(0, dy);
+            }
+            if(horizontal) {
+                directions |= bit(dx, 0);
+            }
+            if(vertical && horizontal) {
+                directions |= bit(dx, dy);
+            }
+        }
+        else if(dx != 0) {
+            boolean next = isSet(walkable, dx, 0);
+            boolean below = isSet(walkable, 0, 1);
+            boolean above = isSet(walkable, 0, -1);
+            if(next) {
+                directions |= bit(dx, 0);
+                if(below) {
+                    directions |= bit(dx, 1);
+                }
+                if(above) {
+                    directions |= bit(dx, -1);
+                }
+            }
+            if(below) {
+                directions |= bit(0, 1);
+            }
+            if(above) {
+                directions |= bit(0, -1);
+            }
+        }
+        else {
+            boolean next = isSet(walkable, 0, dy);
+            boolean right = isSet(walkable, 1, 0);
+            boolean left = isSet(walkable, -1, 0);
+            if(next) {
+                directions |= bit(0, dy);
+                if(right) {
+                    directions |= bit(1, dy);
+                }
+                if(left) {
+                    directions |= bit(-1, dy);
+                }
+            }
+            if(right) {
+                directions |= bit(1, 0);
+            }
+            if(left) {
+                directions |= bit(-1, 0);
+            }
+        }
+        return directions;
+    }
+
+    //Jump from (x, y) in direction (dx, dy), and return the id (y*width+x) of the first jump point reached,
+    //or -1 if the jump runs into a wall or off the map first
+    static int jump(GridMap map, int x, int y, int dx, int dy, int goalX, int goalY) {
+        if(dx == 0 || dy == 0) {
+            return jumpStraight(map, x, y, dx, dy, goalX, goalY);
+        }
+        int width = map.getWidth();
+        while(true) {
+            x += dx;
+            y += dy;
+            if(!map.isWalkable(x, y)) {
+                return -1;
+            }
+            if(x == goalX && y == goalY) {
+                return y*width + x;
+            }
+            //A diagonal cell is a jump point if a straight jump from it finds one
+            if(jumpStraight(map, x, y, dx, 0, goalX, goalY) != -1 || jumpStraight(map, x, y, 0, dy, goalX, goalY) != -1) {
+                return y*width + x;
+            }
+            //Moving on diagonally needs both orthogonal cells to be open
+            if(!(map.isWalkable(x+dx, y) && map.isWalkable(x, y+dy))) {
+                return -1;
+            }
+        }
+    }
+
+    //Jump from (x, y) in the orthogonal direction (dx, dy)
+    private static int jumpStraight(GridMap map, int x, int y, int dx, int dy, int goalX, int goalY) {
+        int width = map.getWidth();
+        if(dx == 1) {
+            //Bit i of each word stands for cell (c+i, y)
+            for(int c = x+1; ; c += 64) {
+                long open = map.walkableBits(c, y);
+                long stops = ~open
+                        | (map.walkableBits(c, y-1) & ~map.walkableBits(c-1, y-1))
+                        | (map.walkableBits(c, y+1) & ~map.walkableBits(c-1, y+1));
+                if(y == goalY && goalX >= c && goalX - c < 64) {
+                    stops |= 1L << (goalX - c);
+                }
+                if(stops != 0) {
+                    int i = Long.numberOfTrailingZeros(stops);
+                    return ((open >>> i) & 1) != 0 ? y*width + c + i : -1;
+                }
+            }
+        }
+        if(dx == -1) {
+            //Bit i of each word stands for cell (c-63+i, y)
+            for(int c = x-1; ; c -= 64) {
+                long open = map.walkableBits(c-63, y);
+                long stops = ~open
+                        | (map.walkableBits(c-63, y-1) & ~map.walkableBits(c-62, y-1))
+                        | (map.walkableBits(c-63, y+1) & ~map.walkableBits(c-62, y+1));
+                if(y == goalY && goalX <= c && c - goalX < 64) {
+                    stops |= 1L << (63 - (c - goalX));
+                }
+                if(stops != 0) {
+                    int i = 63 - Long.numberOfLeadingZeros(stops);
+                    return ((open >>> i) & 1) != 0 ? y*width + c - 63 + i : -1;
+                }
+            }
+        }
+        //Vertical jumps move across rows, so they check one cell at a time
+        while(true) {
+            y += dy;
+            if(!map.isWalkable(x, y)) {
+                return -1;
+            }
+            if(x == goalX && y == goalY) {
+                return y*width + x;
+            }
+            if((map.isWalkable(x-1, y) && !map.isWalkable(x-1, y-dy)) || (map.isWalkable(x+1, y) && !map.isWalkable(x+1, y-dy))) {
+                return y*width + x;
+            }
+        }
+    }
+
+    //Check whether the neighbour at offset (dx, dy) is set in a neighbour mask
+    private static boolean isSet(int mask, int dx, int dy) {
+        return (mask & bit(dx, dy)) != 0;
+    }
+
+    //Bit of the neighbour at offset (dx, dy) in a neighbour mask
+    private static int bit(int dx, int dy) {
+        return 1 << Neighbours.direction(dx, dy);
+    }
+}
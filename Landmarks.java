@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Landmark (ALT) heuristic for maps whose walls don't change
+//Preprocessing picks a few landmark cells spread across the map and stores the exact distance from each landmark to
+//every cell. By the triangle inequality, |d(L, goal) - d(L, cell)| never exceeds the distance from the cell to the
+//goal, and the largest of these bounds over all landmarks is a consistent heuristic that knows about walls. On maze
+//and room maps it keeps A* from flooding dead ends that the plain movement heuristic can't tell apart
+//Distances are stored interleaved, with the k landmarks of a cell next to each other, so an estimate touches one or
+//two cache lines per cell. The tables can be saved to disk and loaded back instead of being rebuilt
+//A Landmarks object is immutable, so it can be shared between threads, but it only describes the map it was built from
+public final class Landmarks implements Heuristic {
+
+    //Distance of cells a landmark can't reach, as filled in by SearchEngine.fillDistanceField
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    //First 4 bytes of every landmark file ("PFLM"), followed by the format version
+    private static final int MAGIC = 0x4d4c4650;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private final int width;
+    private final int height;
+    private final long mapVersion;
+    private final int movement;
+    private final int[] landmarks;
+
+    //Distance from landmark i to cell c, at distances[c*landmarks.length + i]
+    private final int[] distances;
+
+    private Landmarks(int width, int height, long mapVersion, int movement, int[] landmarks, int[] distances) {
+        this.width = width;
+        this.height = height;
+        this.mapVersion = mapVersion;
+        this.movement = movement;
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    //Pick up to count landmarks on the map and compute their distance tables. Each landmark is the walkable cell
+    //farthest from the ones already picked (the first is the cell farthest from an arbitrary walkable cell)
+    public static Landmarks build(GridMap map, int movement, int count) {
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        if(count <= 0) {
+            throw new IllegalArgumentException("Expected at least one landmark, got " + count);
+        }
+        //With costs, a distance to a landmark differs from the distance back, and the bounds would not be admissible
+        if(map.getMaxCost() > 1) {
+            throw new IllegalArgumentException("Landmarks can't be built for a map with costs");
+        }
+        int width = map.getWidth();
+        int cells = width*map.getHeight();
+        if((long)cells*count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many landmarks for a map of " + cells + " cells");
+        }
+        int start = -1;
+        for(int c=0; c<cells && start == -1; c++) {
+            if(map.isWalkable(c % width, c / width)) {
+                start = c;
+            }
+        }
+        if(start == -1) {
+            return new Landmarks(width, map.getHeight(), map.getVersion(), movement, new int[0], new int[0]);
+        }
+
+        SearchEngine engine = Graph.engineFor(map);
+        int[] field = new int[cells];
+        byte[] flow = new byte[cells];
+        //Distance from each cell to the nearest landmark picked so far, used to choose the next one
+        int[] nearest = new int[cells];
+        int[] landmarks = new int[count];
+        int[] distances = new int[cells*count];
+        int k = 0;
+
+        engine.fillDistanceField(map, new int[] {start}, movement, field, flow);
+        int next = farthest(field);
+        while(k < count && next != -1) {
+            landmarks[k] = next;
+            engine.fillDistanceField(map, new int[] {next}, movement, field, flow);
+            for(int c=0; c<cells; c++) {
+                distances[c*count + k] = field[c];
+                nearest[c] = k == 0 ? field[c] : Math.min(nearest[c], field[c]);
+            }
+            k++;
+            //Stop early once every reachable cell is a landmark
+            next = farthest(nearest);
+            if(next != -1 && nearest[next] == 0) {
+                next = -1;
+            }
+        }
+
+        //Close the gaps left by landmarks that couldn't be picked
+        if(k < count) {
+            int[] packed = new int[cells*k];
+            for(int c=0; c<cells; c++) {
+                System.arraycopy(distances, c*count, packed, c*k, k);
+            }
+            distances = packed;
+            landmarks = Arrays.copyOf(landmarks, k);
+        }
+        return new Landmarks(width, map.getHeight(), map.getVersion(), movement, landmarks, distances);
+    }
+
+    //Cell with the largest finite distance, or -1 if no cell has one
+    private static int farthest(int[] distances) {
+        int best = -1;
+        for(int c=0; c<distances.length; c++) {
+            if(distances[c] != UNREACHED && (best == -1 || distances[c] > distances[best])) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int estimate(int x, int y, int goalX, int goalY) {
+        int estimate = Movement.heuristic(this.movement, goalX - x, goalY - y);
+        int k = this.landmarks.length;
+        int from = (y*this.width + x)*k;
+        int to = (goalY*this.width + goalX)*k;
+        for(int i=0; i<k; i++) {
+            int a = this.distances[from + i];
+            int b = this.distances[to + i];
+            //A landmark that can't reach both cells says nothing about the distance between them
+            if(a != UNREACHED && b != UNREACHED) {
+                estimate = Math.max(estimate, Math.abs(a - b));
+            }
+        }
+        return estimate;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Version of the map the tables were built from, or -1 if they were loaded from a file
+    public long getMapVersion() {
+        return this.mapVersion;
+    }
+
+    public int getMovement() {
+        return this.movement;
+    }
+
+    //Number of landmarks, which can be fewer than asked for if the map has too few walkable cells
+    public int getLandmarkCount() {
+        return this.landmarks.length;
+    }
+
+    public int getLandmarkX(int i) {
+        return this.landmarks[i] % this.width;
+    }
+
+    public int getLandmarkY(int i) {
+        return this.landmarks[i] / this.width;
+    }
+
+    //Distance from landmark i to (x, y), or -1 if the landmark can't reach it
+    public int getDistance(int i, int x, int y) {
+        int distance = this.distances[(y*this.width + x)*this.landmarks.length + i];
+        return distance == UNREACHED ? -1 : distance;
+    }
+
+    //Number of bytes used by the distance tables
+    public long getMemoryUsage() {
+        return (long)this.distances.length * 4;
+    }
+
+    //Save the landmarks and their tables. All values are little-endian ints: magic, format version, width, height,
+    //movement mode and landmark count, then the landmark cells, then the interleaved distance table
+    public void save(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(this.width).putInt(this.height).putInt(this.movement)
+                    .putInt(this.landmarks.length);
+            MapFiles.writeInts(channel, buffer, this.landmarks);
+            MapFiles.writeInts(channel, buffer, this.distances);
+            buffer.flip();
+            MapFiles.writeFully(channel, buffer);
+        }
+    }
+
+    //Load landmarks saved with save. They must have been built from the same walls as the map they are used with,
+    //which can't be checked beyond the map's size
+    public static Landmarks load(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            MapFiles.readFully(channel, header, file);
+            if(header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " is not a landmark file");
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int movement = header.getInt();
+            int k = header.getInt();
+            long tableSize = (long)width*height*k;
+            if(width <= 0 || height <= 0 || !Movement.isValid(movement) || k < 0 || tableSize > Integer.MAX_VALUE - 8
+                    || channel.size() != HEADER_SIZE + 4L*(k + tableSize)) {
+                throw new IOException(file + " has an invalid header");
+            }
+            int[] landmarks = MapFiles.readInts(channel, k, file);
+            int[] distances = MapFiles.readInts(channel, (int)tableSize, file);
+            return new Landmarks(width, height, -1, movement, landmarks, distances);
+        }
+    }
+}
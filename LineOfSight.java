@@ -0,0 +1,82 @@
+//Straight-line visibility between cell centres, for any-angle paths (Graph.THETA_STAR, Graph.LAZY_THETA_STAR and
+//Graph.smoothPath)
+//The line is walked Bresenham-style in integers, one cell at a time, visiting every cell it passes through. Where it
+//passes exactly through the corner of four cells it moves diagonally, which like a diagonal grid move needs both
+//cells beside the corner to be walkable. Every step of the walk is therefore a legal grid move, so a line of sight
+//path can always be followed on the grid it was found on
+final class LineOfSight {
+
+    private LineOfSight() {
+    }
+
+    //Check whether the straight line from the centre of (x0, y0) to the centre of (x1, y1) only crosses walkable cells
+    static boolean isClear(GridMap map, int x0, int y0, int x1, int y1) {
+        if(!map.isWalkable(x0, y0)) {
+            return false;
+        }
+        int nx = Math.abs(x1 - x0);
+        int ny = Math.abs(y1 - y0);
+        int sx = x1 > x0 ? 1 : -1;
+        int sy = y1 > y0 ? 1 : -1;
+        int x = x0;
+        int y = y0;
+        //ix and iy count the vertical and horizontal cell edges crossed so far. Comparing where the line crosses the next
+        //of each, (1 + 2ix)/2nx and (1 + 2iy)/2ny of the way along, tells which it reaches first
+        for(int ix=0, iy=0; ix<nx || iy<ny; ) {
+            long decision = (long)(1 + 2*ix)*ny - (long)(1 + 2*iy)*nx;
+            if(decision == 0) {
+                //Through a corner: no cutting it
+                if(!map.isWalkable(x + sx, y) || !map.isWalkable(x, y + sy)) {
+                    return false;
+                }
+                x += sx;
+                y += sy;
+                ix++;
+                iy++;
+            }
+            else if(decision < 0) {
+                x += sx;
+                ix++;
+            }
+            else {
+                y += sy;
+                iy++;
+            }
+            if(!map.isWalkable(x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Reduce a path of cell ids (y*width+x) to its turning points, by skipping every cell that the last kept cell can see
+    //past. Each cell is tested once against the last kept cell, so this is linear in the path length times the length
+    //of the lines tested
+    static int[] smooth(GridMap map, int[] path) {
+        if(path.length <= 2) {
+            return path.clone();
+        }
+        int width = map.getWidth();
+        IntList waypoints = new IntList();
+        int anchor = path[0];
+        waypoints.add(anchor);
+        for(int i=1; i<path.length-1; i++) {
+            int next = path[i+1];
+            if(!isClear(map, anchor % width, anchor / width, next % width, next / width)) {
+                anchor = path[i];
+                waypoints.add(anchor);
+            }
+        }
+        waypoints.add(path[path.length-1]);
+        return waypoints.toArray();
+    }
+
+    //Cost of a path through the given cell ids, with each leg costing its straight-line length
+    static int cost(int[] path, int width) {
+        int cost = 0;
+        for(int i=1; i<path.length; i++) {
+            cost += Movement.euclidean(path[i] % width - path[i-1] % width, path[i] / width - path[i-1] / width);
+        }
+        return cost;
+    }
+}
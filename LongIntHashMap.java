@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+//Hash map from non-negative long keys to int values, without boxing or entry objects
+//Open addressing with linear probing over two primitive arrays (about 12 bytes per slot), kept at most half full
+final class LongIntHashMap {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    //Create a map with room for about expectedSize entries before it has to grow
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8)*2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    //Value of key, or missing if the map doesn't hold it
+    int get(long key, int missing) {
+        int slot = this.find(key);
+        return this.keys[slot] == key ? this.values[slot] : missing;
+    }
+
+    //Set the value of key, adding it if the map doesn't hold it yet
+    void put(long key, int value) {
+        int slot = this.find(key);
+        if(this.keys[slot] == key) {
+            this.values[slot] = value;
+            return;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        if(2*this.size > this.keys.length) {
+            this.grow();
+        }
+    }
+
+    //Remove every entry, keeping the map's capacity
+    void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    //Number of bytes used by the map
+    long getMemoryUsage() {
+        return 12L*this.keys.length;
+    }
+
+    //Slot holding key, or the empty slot where it would go
+    private int find(long key) {
+        int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & this.mask;
+        while(this.keys[slot] != EMPTY && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    //Double the capacity and put every entry back
+    private void grow() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[oldKeys.length*2];
+        this.values = new int[oldKeys.length*2];
+        this.mask = this.keys.length - 1;
+        Arrays.fill(this.keys, EMPTY);
+        for(int i=0; i<oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int slot = this.find(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
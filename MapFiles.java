@@ -0,0 +1,220 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Reading and writing maps
+//The binary map format is a 24-byte header followed by the rows, bit-packed exactly as in BitGridMap, so a file can
+//be searched straight from a memory mapping (see MappedGridMap). All values are little-endian:
+//  int magic ("PFMP"), int format version, int width, int height, int words per row, int reserved (0)
+//  then, for each row y, the row's words, with cell x in bit (x & 63) of word (x >>> 6) and 0 bits past the row's end
+//The text format is the one of the MovingAI grid benchmarks: a "type", "height", "width" and "map" header, then one
+//line per row with a character per cell
+public final class MapFiles {
+
+    //First 4 bytes of every binary map file
+    static final int MAGIC = 0x504d4650;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    private MapFiles() {
+    }
+
+    //Write any map to a binary map file
+    public static void write(GridMap map, Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(map, channel);
+        }
+    }
+
+    //Write any map in the binary map format. Rows are written one at a time, so nothing the size of the map is built
+    public static void write(GridMap map, OutputStream out) throws IOException {
+        write(map, Channels.newChannel(out));
+    }
+
+    //Open a binary map file for searching, without reading it into memory
+    public static MappedGridMap open(Path file) throws IOException {
+        return MappedGridMap.open(file);
+    }
+
+    //Read a MovingAI .map file into a new map. Only '.', 'G' and 'S' cells are walkable
+    public static BitGridMap readMovingAi(Path file) throws IOException {
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            int[] size = readMovingAiHeader(reader, file);
+            BitGridMap map = new BitGridMap(size[0], size[1], false);
+            long[] words = map.words();
+            for(int y=0; y<size[1]; y++) {
+                readMovingAiRow(reader, file, y, size[0], words, y*map.getWordsPerRow());
+            }
+            return map;
+        }
+    }
+
+    //Convert a MovingAI .map file into a binary map file, one row at a time, for maps too large to hold in memory
+    public static void convertMovingAi(Path text, Path binary) throws IOException {
+        try(BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.ISO_8859_1);
+                FileChannel channel = FileChannel.open(binary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            int[] size = readMovingAiHeader(reader, text);
+            int wordsPerRow = (size[0] + 63) >>> 6;
+            writeHeader(channel, size[0], size[1]);
+            long[] row = new long[wordsPerRow];
+            ByteBuffer buffer = ByteBuffer.allocate(8*wordsPerRow).order(ByteOrder.LITTLE_ENDIAN);
+            for(int y=0; y<size[1]; y++) {
+                Arrays.fill(row, 0L);
+                readMovingAiRow(reader, text, y, size[0], row, 0);
+                buffer.clear();
+                buffer.asLongBuffer().put(row);
+                writeFully(channel, buffer);
+            }
+        }
+    }
+
+    //Write a map in the binary map format to a channel
+    private static void write(GridMap map, WritableByteChannel channel) throws IOException {
+        int width = map.getWidth();
+        int wordsPerRow = (width + 63) >>> 6;
+        writeHeader(channel, width, map.getHeight());
+        ByteBuffer buffer = ByteBuffer.allocate(8*wordsPerRow).order(ByteOrder.LITTLE_ENDIAN);
+        for(int y=0; y<map.getHeight(); y++) {
+            buffer.clear();
+            for(int k=0; k<wordsPerRow; k++) {
+                //Clear the bits past the end of the row, which the map reports as blocked but may not store as 0
+                int cells = width - (k << 6);
+                long mask = cells >= 64 ? -1L : (1L << cells) - 1;
+                buffer.putLong(map.walkableBits(k << 6, y) & mask);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeHeader(WritableByteChannel channel, int width, int height) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height).putInt((width + 63) >>> 6).putInt(0);
+        header.flip();
+        writeFully(channel, header);
+    }
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    //Append ints to a little-endian buffer, writing it out to the channel whenever it fills up. Whatever is left in the
+    //buffer at the end is up to the caller to write
+    static void writeInts(WritableByteChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for(int i=0; i<values.length; ) {
+            int n = Math.min(values.length - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, i, n);
+            buffer.position(buffer.position() + 4*n);
+            i += n;
+            if(buffer.remaining() < 4) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    //Read count little-endian ints from the channel's current position
+    static int[] readInts(FileChannel channel, int count, Path file) throws IOException {
+        int[] values = new int[count];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i=0; i<count; ) {
+            int n = Math.min(count - i, buffer.capacity() / 4);
+            buffer.clear().limit(4*n);
+            readFully(channel, buffer, file);
+            buffer.asIntBuffer().get(values, i, n);
+            i += n;
+        }
+        return values;
+    }
+
+    //Fill the buffer from the channel's current position, then flip it for reading
+    static void readFully(FileChannel channel, ByteBuffer buffer, Path file) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0) {
+                throw new IOException(file + " is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    //Read and check the header of a binary map file, returning {width, height}
+    static int[] readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while(header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0) {
+                throw new IOException(file + " is not a map file");
+            }
+        }
+        header.flip();
+        if(header.getInt() != MAGIC) {
+            throw new IOException(file + " is not a map file");
+        }
+        int version = header.getInt();
+        if(version != FORMAT_VERSION) {
+            throw new IOException(file + " has unsupported format version " + version);
+        }
+        int width = header.getInt();
+        int height = header.getInt();
+        if(width <= 0 || height <= 0 || header.getInt() != (width + 63) >>> 6) {
+            throw new IOException(file + " has an invalid header");
+        }
+        return new int[] {width, height};
+    }
+
+    //Read the header of a MovingAI .map file, returning {width, height}
+    private static int[] readMovingAiHeader(BufferedReader reader, Path file) throws IOException {
+        int width = -1;
+        int height = -1;
+        String line;
+        while((line = reader.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            if(parts[0].equals("map")) {
+                if(width <= 0 || height <= 0) {
+                    throw new IOException(file + " is missing its width or height");
+                }
+                return new int[] {width, height};
+            }
+            try {
+                if(parts[0].equals("width") && parts.length == 2) {
+                    width = Integer.parseInt(parts[1]);
+                }
+                else if(parts[0].equals("height") && parts.length == 2) {
+                    height = Integer.parseInt(parts[1]);
+                }
+            }
+            catch(NumberFormatException e) {
+                throw new IOException(file + " has an invalid header line: " + line);
+            }
+        }
+        throw new IOException(file + " has no map section");
+    }
+
+    //Read row y of a MovingAI .map file, setting the bits of its walkable cells in words from offset onwards
+    private static void readMovingAiRow(BufferedReader reader, Path file, int y, int width, long[] words, int offset) throws IOException {
+        String line = reader.readLine();
+        if(line == null || line.length() < width) {
+            throw new IOException(file + " has a missing or short row " + y);
+        }
+        for(int x=0; x<width; x++) {
+            char c = line.charAt(x);
+            if(c == '.' || c == 'G' || c == 'S') {
+                words[offset + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+//Immutable view of a ChunkedGridMap's cells as they were at one version
+//Cells are stored in square chunks of CHUNK_SIZE x CHUNK_SIZE cells, one 64-bit word per chunk row, with cell x of
+//the row in bit (x & 63). Snapshots only hold references to the chunks, and share every chunk that didn't change
+//between them: taking one costs a copy of the chunk table, not of the cells
+//Nothing in a snapshot ever changes, so any number of threads can read it at once without locking, and every read
+//sees the same version of the map
+public final class MapSnapshot implements GridMap {
+
+    //Width and height of a chunk in cells. Chunk rows are exactly one word, so row reads stay word reads
+    public static final int CHUNK_SIZE = 64;
+
+    private final int width;
+    private final int height;
+    private final int chunksPerRow;
+    private final long[][] chunks;
+    private final long version;
+
+    //The chunk table is taken over by the snapshot, and neither it nor the chunks may be modified afterwards
+    MapSnapshot(int width, int height, long[][] chunks, long version) {
+        this.width = width;
+        this.height = height;
+        this.chunksPerRow = (width + 63) >>> 6;
+        this.chunks = chunks;
+        this.version = version;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    //The version of the map when the snapshot was taken
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return isWalkable(this.chunks, this.chunksPerRow, this.width, this.height, x, y);
+    }
+
+    @Override
+    public long walkableBits(int x, int y) {
+        return walkableBits(this.chunks, this.chunksPerRow, this.width, this.height, x, y);
+    }
+
+    @Override
+    public int neighbourBits(int x, int y) {
+        return neighbourBits(this.chunks, this.chunksPerRow, this.width, this.height, x, y);
+    }
+
+    //Number of chunks this snapshot shares with another one (the same chunk object, not just the same cells)
+    public int countSharedChunks(MapSnapshot other) {
+        if(other.chunks.length != this.chunks.length) {
+            return 0;
+        }
+        int shared = 0;
+        for(int c=0; c<this.chunks.length; c++) {
+            if(this.chunks[c] == other.chunks[c]) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    //Reads shared with ChunkedGridMap, over a chunk table laid out as described above
+    static boolean isWalkable(long[][] chunks, int chunksPerRow, int width, int height, int x, int y) {
+        if(x<0 || x>=width || y<0 || y>=height) {
+            return false;
+        }
+        return (chunks[(y >>> 6)*chunksPerRow + (x >>> 6)][y & 63] & (1L << x)) != 0;
+    }
+
+    static long walkableBits(long[][] chunks, int chunksPerRow, int width, int height, int x, int y) {
+        if(y<0 || y>=height || x>=width || x<=-64) {
+            return 0;
+        }
+        int base = (y >>> 6)*chunksPerRow;
+        int row = y & 63;
+        if(x < 0) {
+            return chunks[base][row] << -x;
+        }
+        int k = x >>> 6;
+        int offset = x & 63;
+        long bits = chunks[base + k][row] >>> offset;
+        if(offset != 0 && k+1 < chunksPerRow) {
+            bits |= chunks[base + k + 1][row] << (64 - offset);
+        }
+        return bits;
+    }
+
+    static int neighbourBits(long[][] chunks, int chunksPerRow, int width, int height, int x, int y) {
+        //Read the 3 cells (x-1..x+1) of the rows above, through and below the cell
+        int above = (int)walkableBits(chunks, chunksPerRow, width, height, x-1, y-1) & 7;
+        int row = (int)walkableBits(chunks, chunksPerRow, width, height, x-1, y) & 7;
+        int below = (int)walkableBits(chunks, chunksPerRow, width, height, x-1, y+1) & 7;
+        return Neighbours.fromRows(above, row, below);
+    }
+}
@@ -0,0 +1,16 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+//Hands out the version stamps returned by GridMap.getVersion
+//Stamps are unique across every map in the process, so two maps with the same stamp always hold the same cells
+final class MapVersions {
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private MapVersions() {
+    }
+
+    //Return a stamp that has never been returned before
+    static long next() {
+        return LAST.incrementAndGet();
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Read-only grid map backed by a memory-mapped map file (see MapFiles for the format)
+//Opening a map only maps the file, so it takes the same time whatever the map's size. Cells are paged in from the
+//page cache as searches touch them, and every process that opens the same file shares those pages
+//A single mapping can't exceed 2GB, so larger files are mapped as several chunks of whole rows
+//The contents must not change while the file is open. The mapping is released once the map is garbage collected
+public class MappedGridMap implements GridMap {
+
+    //Largest number of bytes mapped in one chunk
+    private static final long CHUNK_BYTES = 1L << 30;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final int rowsPerChunk;
+
+    //Mask of the bits of a row's last word that correspond to cells. The padding bits past the width are masked off
+    //on every read rather than trusted to be zero, so opening a file doesn't have to read all of it
+    private final long lastWordMask;
+
+    //Row words of each chunk, viewed as little-endian longs
+    private final LongBuffer[] chunks;
+
+    //Stamp of the contents, which never change once the file is open
+    private final long version = MapVersions.next();
+
+    private MappedGridMap(int width, int height, LongBuffer[] chunks, int rowsPerChunk) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.chunks = chunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.lastWordMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+    }
+
+    //Map a map file into memory
+    public static MappedGridMap open(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int[] size = MapFiles.readHeader(channel, file);
+            int width = size[0];
+            int height = size[1];
+            long rowBytes = 8L*((width + 63) >>> 6);
+            if(channel.size() < MapFiles.HEADER_SIZE + rowBytes*height) {
+                throw new IOException(file + " is truncated");
+            }
+            int rowsPerChunk = (int)Math.min(height, Math.max(1, CHUNK_BYTES / rowBytes));
+            LongBuffer[] chunks = new LongBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+            for(int i=0; i<chunks.length; i++) {
+                int rows = Math.min(rowsPerChunk, height - i*rowsPerChunk);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        MapFiles.HEADER_SIZE + rowBytes*i*rowsPerChunk, rowBytes*rows);
+                chunks[i] = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            return new MappedGridMap(width, height, chunks, rowsPerChunk);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            return false;
+        }
+        return (this.word(y, x >>> 6) & (1L << x)) != 0;
+    }
+
+    @Override
+    public long walkableBits(int x, int y) {
+        if(y<0 || y>=this.height || x>=this.width || x<=-64) {
+            return 0;
+        }
+        if(x < 0) {
+            return this.word(y, 0) << -x;
+        }
+        int k = x >>> 6;
+        int offset = x & 63;
+        long bits = this.word(y, k) >>> offset;
+        if(offset != 0 && k+1 < this.wordsPerRow) {
+            bits |= this.word(y, k+1) << (64 - offset);
+        }
+        return bits;
+    }
+
+    @Override
+    public int neighbourBits(int x, int y) {
+        int above = (int)this.walkableBits(x-1, y-1) & 7;
+        int row = (int)this.walkableBits(x-1, y) & 7;
+        int below = (int)this.walkableBits(x-1, y+1) & 7;
+        return Neighbours.fromRows(above, row, below);
+    }
+
+    //Word k of row y, without its padding bits
+    private long word(int y, int k) {
+        long word = this.chunks[y / this.rowsPerChunk].get((y % this.rowsPerChunk)*this.wordsPerRow + k);
+        return k == this.wordsPerRow - 1 ? word & this.lastWordMask : word;
+    }
+}
@@ -0,0 +1,50 @@
+//Cost model of each movement mode (Graph.FOUR_CONNECTED, Graph.OCTILE and Graph.CHEBYSHEV)
+//Costs are integers in fixed point, with an orthogonal move costing STRAIGHT_COST. Each heuristic is the exact cost
+//of the cheapest path on an empty grid under its model, which makes it admissible and consistent: a node's first
+//expansion is always along a shortest path, so no node ever has to be expanded twice
+final class Movement {
+
+    //Cost of an orthogonal move in every model, and of a diagonal move in the octile model (approximating sqrt 2)
+    static final int STRAIGHT_COST = 10;
+    static final int OCTILE_DIAGONAL_COST = 14;
+
+    private Movement() {
+    }
+
+    //Check whether a movement mode is known
+    static boolean isValid(int movement) {
+        return movement == Graph.FOUR_CONNECTED || movement == Graph.OCTILE || movement == Graph.CHEBYSHEV;
+    }
+
+    //Mask of the directions (as in Neighbours) a movement mode allows
+    static int allowedMoves(int movement) {
+        return movement == Graph.FOUR_CONNECTED ? Neighbours.ORTHOGONAL : Neighbours.ORTHOGONAL | Neighbours.DIAGONAL;
+    }
+
+    //Cost of a single move in direction d
+    static int cost(int movement, int d) {
+        if(d < 4 || movement != Graph.OCTILE) {
+            return STRAIGHT_COST;
+        }
+        return OCTILE_DIAGONAL_COST;
+    }
+
+    //Cheapest cost of covering an offset of (dx, dy) on an empty grid
+    static int heuristic(int movement, int dx, int dy) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        if(movement == Graph.FOUR_CONNECTED) {
+            return STRAIGHT_COST*(dx + dy);
+        }
+        if(movement == Graph.CHEBYSHEV) {
+            return STRAIGHT_COST*Math.max(dx, dy);
+        }
+        return STRAIGHT_COST*Math.max(dx, dy) + (OCTILE_DIAGONAL_COST - STRAIGHT_COST)*Math.min(dx, dy);
+    }
+
+    //Straight-line length of an offset of (dx, dy), rounded to the nearest cost unit. Used as the cost of each leg of an
+    //any-angle path, and as the heuristic of any-angle searches
+    static int euclidean(int dx, int dy) {
+        return (int)Math.round(STRAIGHT_COST*Math.sqrt((double)dx*dx + (double)dy*dy));
+    }
+}
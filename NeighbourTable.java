@@ -0,0 +1,69 @@
+//Snapshot of a map with the neighbour mask of every cell worked out in advance
+//A search asks for the neighbours of every cell it expands, and on most maps that means assembling the mask from
+//three rows of bits each time. Here it is one byte load, at the cost of one byte per cell on top of the bit-packed cells
+//Worth it for maps that are searched many times between changes. The table is immutable and safe to share between threads
+public final class NeighbourTable implements GridMap {
+
+    private final BitGridMap cells;
+    private final byte[] masks;
+
+    private NeighbourTable(BitGridMap cells, byte[] masks) {
+        this.cells = cells;
+        this.masks = masks;
+    }
+
+    //Build the table for the current contents of a map
+    //The table only holds walkability, so maps with costs are refused rather than passed off under their version
+    public static NeighbourTable of(GridMap map) {
+        if(map.getMaxCost() > 1) {
+            throw new IllegalArgumentException("Neighbour tables can't be built for a map with costs");
+        }
+        long version = map.getVersion();
+        BitGridMap cells = BitGridMap.copyOf(map).withVersion(version);
+        int width = cells.getWidth();
+        int height = cells.getHeight();
+        byte[] masks = new byte[width*height];
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                masks[y*width + x] = (byte)cells.neighbourBits(x, y);
+            }
+        }
+        return new NeighbourTable(cells, masks);
+    }
+
+    @Override
+    public int getWidth() {
+        return this.cells.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.cells.getHeight();
+    }
+
+    //The version of the map the table was built from, as it holds the same cells
+    @Override
+    public long getVersion() {
+        return this.cells.getVersion();
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return this.cells.isWalkable(x, y);
+    }
+
+    @Override
+    public long walkableBits(int x, int y) {
+        return this.cells.walkableBits(x, y);
+    }
+
+    @Override
+    public int neighbourBits(int x, int y) {
+        return this.masks[y*this.cells.getWidth() + x] & 0xFF;
+    }
+
+    //Number of bytes used by the cells and the table
+    public long getMemoryUsage() {
+        return this.cells.getMemoryUsage() + this.masks.length;
+    }
+}
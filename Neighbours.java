@@ -0,0 +1,75 @@
+//Shared definition of a cell's 8 neighbours and of the bit masks used to describe them
+//Bit d of a neighbour mask stands for the neighbour at offset (DX[d], DY[d])
+final class Neighbours {
+
+    //Offsets of the 8 neighbours of a cell. The first 4 are the orthogonal moves, the last 4 the diagonal ones
+    static final int[] DX = {1, -1, 0, 0, 1, -1, 1, -1};
+    static final int[] DY = {0, 0, 1, -1, -1, -1, 1, 1};
+
+    //Direction pointing the opposite way of each direction
+    static final int[] OPPOSITE = {1, 0, 3, 2, 7, 6, 5, 4};
+
+    //Direction index of each offset, looked up by (dy+1)*3 + (dx+1). The centre has no direction
+    private static final int[] DIRECTIONS = {5, 3, 4, 1, -1, 0, 7, 2, 6};
+
+    //Masks of the orthogonal and diagonal neighbours
+    static final int ORTHOGONAL = 0x0F;
+    static final int DIAGONAL = 0xF0;
+
+    private Neighbours() {
+    }
+
+    //Return the direction index d of the neighbour at offset (dx, dy), where dx and dy are each -1, 0 or 1
+    static int direction(int dx, int dy) {
+        return DIRECTIONS[(dy+1)*3 + (dx+1)];
+    }
+
+    //Build a neighbour mask from the walkability of the cells x-1..x+1 (bits 0 to 2) of the rows above, through and
+    //below a cell, as read with GridMap.walkableBits
+    static int fromRows(int above, int row, int below) {
+        return (row >>> 2) & 1
+                | (row & 1) << 1
+                | (below & 2) << 1
+                | (above & 2) << 2
+                | (above & 4) << 2
+                | (above & 1) << 5
+                | (below & 4) << 4
+                | (below & 1) << 7;
+    }
+
+    //Legal moves of every mask of walkable neighbours, so that applying the corner rule is one table lookup
+    private static final byte[] LEGAL_MOVES = new byte[256];
+
+    static {
+        for(int walkable=0; walkable<256; walkable++) {
+            LEGAL_MOVES[walkable] = (byte)computeLegalMoves(walkable);
+        }
+    }
+
+    //Given a mask of walkable neighbours, return the mask of legal moves
+    //A diagonal move is only legal when both orthogonal cells next to it are walkable (no cutting corners)
+    static int legalMoves(int walkable) {
+        return LEGAL_MOVES[walkable] & 0xFF;
+    }
+
+    private static int computeLegalMoves(int walkable) {
+        int moves = walkable & ORTHOGONAL;
+        //East and north
+        if((walkable & 0x09) == 0x09) {
+            moves |= walkable & 0x10;
+        }
+        //West and north
+        if((walkable & 0x0A) == 0x0A) {
+            moves |= walkable & 0x20;
+        }
+        //East and south
+        if((walkable & 0x05) == 0x05) {
+            moves |= walkable & 0x40;
+        }
+        //West and south
+        if((walkable & 0x06) == 0x06) {
+            moves |= walkable & 0x80;
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,31 @@
+//Priority queue of node ids used as the open list of a search
+//SearchEngine picks an implementation per query: an IndexedMinHeap in general, or a BucketQueue for Dijkstra's
+//algorithm, whose keys only ever grow by bounded integer steps
+interface OpenList {
+
+    boolean isEmpty();
+
+    //Check whether a node is currently queued
+    boolean contains(int node);
+
+    //Add a node that is not yet queued
+    void add(int node, long key);
+
+    //Lower the priority of a node that is already queued
+    void decreaseKey(int node, long key);
+
+    //Remove and return the node with the lowest priority
+    int poll();
+
+    //Empty the queue and its operation counts
+    void clear();
+
+    //Number of nodes added since the last clear
+    int getAddCount();
+
+    //Number of decrease-keys since the last clear
+    int getDecreaseKeyCount();
+
+    //Largest size the queue reached since the last clear
+    int getPeakSize();
+}
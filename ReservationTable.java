@@ -0,0 +1,62 @@
+//Space-time reservation table for cooperative pathfinding: records which agent holds each (cell, time) pair
+//Pairs are packed into one long key (time in the high 32 bits, cell id y*width+x in the low 32) in a primitive hash
+//map (see LongIntHashMap), so a reservation takes about 24 bytes, with no boxing and no entry objects
+//A table is not thread-safe. Agents that can't meet are planned against tables of their own (see CooperativePlanner)
+public final class ReservationTable {
+
+    private final LongIntHashMap agents;
+
+    //Create a table with room for about expectedSize reservations before it has to grow
+    public ReservationTable(int expectedSize) {
+        this.agents = new LongIntHashMap(expectedSize);
+    }
+
+    //Number of reservations held
+    public int size() {
+        return this.agents.size();
+    }
+
+    //Reserve cell at time for agent. Returns false (and changes nothing) if another agent already holds it
+    public boolean reserve(int cell, int time, int agent) {
+        long key = key(cell, time);
+        int holder = this.agents.get(key, -1);
+        if(holder != -1) {
+            return holder == agent;
+        }
+        this.agents.put(key, agent);
+        return true;
+    }
+
+    //Agent holding cell at time, or -1 if it is free
+    public int getAgent(int cell, int time) {
+        return this.agents.get(key(cell, time), -1);
+    }
+
+    //Check whether agent can move from one cell at time to another at time+1: the target must be free (or the agent's
+    //own), and no other agent may be coming the other way, as two agents can't swap cells
+    public boolean isMoveFree(int from, int to, int time, int agent) {
+        int holder = this.getAgent(to, time + 1);
+        if(holder != -1 && holder != agent) {
+            return false;
+        }
+        if(from == to) {
+            return true;
+        }
+        int oncoming = this.getAgent(to, time);
+        return oncoming == -1 || oncoming == agent || this.getAgent(from, time + 1) != oncoming;
+    }
+
+    //Remove every reservation, keeping the table's capacity
+    public void clear() {
+        this.agents.clear();
+    }
+
+    //Number of bytes used by the table
+    public long getMemoryUsage() {
+        return this.agents.getMemoryUsage();
+    }
+
+    private static long key(int cell, int time) {
+        return ((long)time << 32) | (cell & 0xFFFFFFFFL);
+    }
+}
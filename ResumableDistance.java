@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+//True distance from any cell to one goal, worked out only as far as it is asked for (Reverse Resumable A*, from WHCA*)
+//An A* search runs backwards from the goal towards the agent's source. Moves are symmetric, so the cost it closes a
+//cell with is that cell's distance to the goal. Asking for a cell the search hasn't closed yet resumes it until the
+//cell is closed. The cells an agent asks about lie along its way, so the search mostly stays close to what a single
+//A* search would expand, instead of covering the map as a DistanceField does
+//Costs are kept in a primitive hash map (closed cells are stored as ~cost), and the open list is a binary heap of
+//packed (f, cell) longs with stale entries skipped when polled. Not thread-safe
+final class ResumableDistance {
+
+    private final GridMap map;
+    private final int movement;
+    private final int allowedMoves;
+    private final int width;
+    private final int targetX;
+    private final int targetY;
+
+    private final LongIntHashMap costs = new LongIntHashMap(256);
+    private long[] open = new long[64];
+    private int openSize;
+
+    ResumableDistance(GridMap map, int movement, int goal, int target) {
+        this.map = map;
+        this.movement = movement;
+        this.allowedMoves = Movement.allowedMoves(movement);
+        this.width = map.getWidth();
+        this.targetX = target % this.width;
+        this.targetY = target / this.width;
+        this.costs.put(goal, 0);
+        this.push(this.estimate(goal), goal);
+    }
+
+    //Distance from cell to the goal, or -1 if the goal can't be reached from there
+    int distance(int cell) {
+        int cost = this.costs.get(cell, Integer.MAX_VALUE);
+        if(cost < 0) {
+            return ~cost;
+        }
+        while(this.openSize > 0) {
+            long top = this.pop();
+            int current = (int)top;
+            int currentCost = this.costs.get(current, 0);
+            //Skip cells already closed, and entries left behind by a later, cheaper cost
+            if(currentCost < 0 || currentCost + this.estimate(current) != (int)(top >>> 32)) {
+                continue;
+            }
+            this.costs.put(current, ~currentCost);
+            int x = current % this.width;
+            int y = current / this.width;
+            int moves = Neighbours.legalMoves(this.map.neighbourBits(x, y)) & this.allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int next = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+                int nextCost = currentCost + Movement.cost(this.movement, d);
+                int known = this.costs.get(next, Integer.MAX_VALUE);
+                if(known >= 0 && nextCost < known) {
+                    this.costs.put(next, nextCost);
+                    this.push(nextCost + this.estimate(next), next);
+                }
+            }
+            if(current == cell) {
+                return currentCost;
+            }
+        }
+        return -1;
+    }
+
+    //Number of bytes used by the costs and the open list
+    long getMemoryUsage() {
+        return this.costs.getMemoryUsage() + 8L*this.open.length;
+    }
+
+    //Lower bound of the distance from cell to the agent's source
+    private int estimate(int cell) {
+        return Movement.heuristic(this.movement, Math.abs(cell % this.width - this.targetX),
+                Math.abs(cell / this.width - this.targetY));
+    }
+
+    private void push(int f, int cell) {
+        if(this.openSize == this.open.length) {
+            this.open = Arrays.copyOf(this.open, this.openSize*2);
+        }
+        long entry = ((long)f << 32) | cell;
+        int i = this.openSize++;
+        while(i > 0 && this.open[(i-1) >>> 1] > entry) {
+            this.open[i] = this.open[(i-1) >>> 1];
+            i = (i-1) >>> 1;
+        }
+        this.open[i] = entry;
+    }
+
+    private long pop() {
+        long top = this.open[0];
+        long last = this.open[--this.openSize];
+        int i = 0;
+        while(true) {
+            int child = 2*i + 1;
+            if(child >= this.openSize) {
+                break;
+            }
+            if(child + 1 < this.openSize && this.open[child + 1] < this.open[child]) {
+                child++;
+            }
+            if(this.open[child] >= last) {
+                break;
+            }
+            this.open[i] = this.open[child];
+            i = child;
+        }
+        this.open[i] = last;
+        return top;
+    }
+}
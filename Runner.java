@@ -1,6 +1,13 @@
 import java.awt.EventQueue;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
-import java.util.ArrayList;
+import javax.swing.JOptionPane;
 
 public class Runner {
 
@@ -10,6 +17,15 @@ public class Runner {
     //This indicates what mode the program is in (i.e. wall paint mode, erase mode etc.)
     private static int userMode;
 
+    //The pathfinding algorithm used when the user asks for a path
+    private static int algorithm = Graph.A_STAR;
+
+    //The movement mode used when the user asks for a path
+    private static int movement = Graph.OCTILE;
+
+    //Number of search events buffered between a running search and the board's replay
+    private static final int REPLAY_BUFFER_SIZE = 4096;
+
     public static void main(String[] args) {
 
         //Start off in wall paint mode by default
@@ -30,6 +46,11 @@ public class Runner {
         board.setWall(x, y);
     }
 
+    //Paint mud at the specified position
+    public static void setMud(int x, int y) {
+        board.setMud(x, y);
+    }
+
     //Remove a wall at the specified position
     public static void removeWall(int x, int y) {
         board.removeWall(x, y);
@@ -65,6 +86,11 @@ public class Runner {
         userMode = Board.WALL_PAINT_MODE;
     }
 
+    //Set the user mode to mud paint mode (for painting mud)
+    public static void setMudPaintMode() {
+        userMode = Board.MUD_PAINT_MODE;
+    }
+
     //Set the user mode to erase mode (for removing walls)
     public static void setEraseMode() {
         userMode = Board.ERASE_MODE;
@@ -80,18 +106,86 @@ public class Runner {
         userMode = Board.GOAL_PLACE_MODE;
     }
 
+    //Set the pathfinding algorithm (Graph.A_STAR, Graph.DIJKSTRA, Graph.JUMP_POINT, Graph.BIDIRECTIONAL_A_STAR,
+    //Graph.BIDIRECTIONAL_DIJKSTRA, Graph.THETA_STAR or Graph.LAZY_THETA_STAR)
+    public static void setAlgorithm(int newAlgorithm) {
+        algorithm = newAlgorithm;
+    }
+
+    //Set the movement mode (Graph.FOUR_CONNECTED, Graph.OCTILE or Graph.CHEBYSHEV)
+    public static void setMovement(int newMovement) {
+        movement = newMovement;
+    }
+
     //Use pathfinding algorithm to find path from source to goal, and paint display in real-time to visualize algorithm
     public static void findPath() {
-        ArrayList<int[]> visited = new ArrayList<int[]>();
-        ArrayList<int[]> path = Graph.AStar(board, visited);
-        board.recordVisitedNodesAndPath(visited, path);
+        int[] source = board.getSource();
+        int[] goal = board.getGoal();
+        //Jump Point Search and the any-angle searches always move in octile mode
+        boolean octileOnly = algorithm == Graph.JUMP_POINT || algorithm == Graph.THETA_STAR ||
+                algorithm == Graph.LAZY_THETA_STAR;
+        int searchMovement = octileOnly ? Graph.OCTILE : movement;
+        //Run the search on its own thread, streaming its progress to the board as it goes
+        SearchEventBuffer events = new SearchEventBuffer(REPLAY_BUFFER_SIZE);
+        final GridMap map = board.getGridMap();
+        if(map.getMaxCost() > 1 && algorithm != Graph.A_STAR && algorithm != Graph.DIJKSTRA) {
+            JOptionPane.showMessageDialog(ex, "Only A* and Dijkstra's algorithm can find paths across mud");
+            return;
+        }
+        final SearchRequest request = new SearchRequest(source[0], source[1], goal[0], goal[1], algorithm)
+                .withMovement(searchMovement).withObserver(events).withComponents(board.getConnectedComponents());
+        board.replay(events);
+        Thread search = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Graph.findPath(map, request);
+                }
+                catch(CancellationException e) {
+                    //The board was reset before the replay caught up, so nobody wants the rest of the search
+                }
+            }
+        }, "path-search");
+        search.setDaemon(true);
+        search.start();
     }
 
-    //Paint the next visited node (in the array list) onto the board
+    //Paint the next visited node (or path node) of the running search onto the board
     public static void paintNextNode() {
         board.paintNextNode();
     }
 
+    //Ask for a file, and save the board's walls to it in the binary map format
+    public static void saveMap() {
+        JFileChooser chooser = new JFileChooser();
+        if(chooser.showSaveDialog(ex) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(chooser.getSelectedFile().toPath()))) {
+            board.exportMap(out);
+        }
+        catch(IOException e) {
+            JOptionPane.showMessageDialog(ex, "Could not save the map: " + e.getMessage());
+        }
+    }
+
+    //Ask for a file, and load walls from it. Files ending in .map are read as MovingAI maps, others as binary maps
+    public static void loadMap() {
+        JFileChooser chooser = new JFileChooser();
+        if(chooser.showOpenDialog(ex) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        try {
+            GridMap map = file.toString().endsWith(".map") ? MapFiles.readMovingAi(file) : MapFiles.open(file);
+            board.loadMap(map);
+            refresh();
+        }
+        catch(IOException e) {
+            JOptionPane.showMessageDialog(ex, "Could not load the map: " + e.getMessage());
+        }
+    }
+
     //Reset board (to perform pathfinding again). Boolean argument indicates whether or not to reset walls
     public static void resetBoard(boolean resetWalls) {
         board.resetBoard(resetWalls);
@@ -0,0 +1,485 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+//Reusable search engine for grids of a fixed size
+//All per-node state lives in flat arrays indexed by y*width+x, so a search never allocates anything per node,
+//and the same engine can be reused for any number of queries on a grid of the same size
+//An engine is not thread-safe: every thread needs its own (see Graph.findPath)
+public class SearchEngine {
+
+    //Dimensions of the grid this engine was sized for
+    private final int width;
+    private final int height;
+
+    //Per-node search state. distances and parent are only meaningful for nodes that are open or closed
+    private final int[] distances;
+    private final int[] parent;
+    private final BitSet closed;
+
+    //Open list of the current query. A node is open exactly when it is in it
+    //It is the heap, except for Dijkstra's algorithm, which uses a bucket queue sized for the map's largest move cost
+    private OpenList open;
+    private final IndexedMinHeap heap;
+    private BucketQueue buckets;
+
+    //Visited nodes of the current query, in order (only filled when the request asks for them)
+    private int[] visited;
+    private int visitedCount;
+
+    //Second frontier for bidirectional searches, only created once one is requested
+    private BidirectionalSearch bidirectional;
+
+    //Parallel Dijkstra's algorithm for requests with delta-stepping, only created once one is requested
+    private DeltaStepping deltaStepping;
+
+    //Set when the last query was answered from its components, without searching
+    private boolean unreachable;
+
+    public SearchEngine(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.distances = new int[width*height];
+        this.parent = new int[width*height];
+        this.closed = new BitSet(width*height);
+        this.heap = new IndexedMinHeap(width*height);
+        this.open = this.heap;
+        this.visited = new int[64];
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    //Find a path from the request's source to its goal on the given map
+    public SearchResult search(GridMap map, SearchRequest request) {
+        if(map.getWidth() != this.width || map.getHeight() != this.height) {
+            throw new IllegalArgumentException("Engine sized for " + this.width + "x" + this.height +
+                    " cannot search a " + map.getWidth() + "x" + map.getHeight() + " map");
+        }
+        this.checkOnMap(request.getSourceX(), request.getSourceY());
+        this.checkOnMap(request.getGoalX(), request.getGoalY());
+        if(map.getMaxCost() > 1 && request.getAlgorithm() != Graph.A_STAR && request.getAlgorithm() != Graph.DIJKSTRA) {
+            throw new IllegalArgumentException("Only A* and Dijkstra's algorithm can search a map with costs");
+        }
+        SearchResult result;
+        this.unreachable = this.isUnreachable(map, request);
+        if(this.unreachable) {
+            result = new SearchResult(this.width, new int[0], new int[0], -1, 0);
+        }
+        else if(request.getAlgorithm() == Graph.JUMP_POINT) {
+            result = this.searchJumpPoints(map, request);
+        }
+        else if(request.getAlgorithm() == Graph.BIDIRECTIONAL_A_STAR || request.getAlgorithm() == Graph.BIDIRECTIONAL_DIJKSTRA) {
+            if(this.bidirectional == null) {
+                this.bidirectional = new BidirectionalSearch(this.width, this.height);
+            }
+            result = this.bidirectional.search(map, request);
+        }
+        else if(request.isDeltaStepping()) {
+            if(this.deltaStepping == null) {
+                this.deltaStepping = new DeltaStepping(this.width, this.height);
+            }
+            result = this.deltaStepping.search(map, request);
+        }
+        else if(request.getAlgorithm() == Graph.THETA_STAR || request.getAlgorithm() == Graph.LAZY_THETA_STAR) {
+            result = this.searchAnyAngle(map, request, request.getAlgorithm() == Graph.LAZY_THETA_STAR);
+        }
+        else {
+            int goal = request.getGoalY()*this.width + request.getGoalX();
+            this.reset(request, this.openListFor(map, request));
+            int nodesExpanded = this.expand(map, request, goal, 0, 0, this.width-1, this.height-1);
+            result = this.buildResult(goal, nodesExpanded, false);
+        }
+        if(request.getObserver() != null) {
+            this.reportPath(request.getObserver(), result);
+        }
+        return result;
+    }
+
+    //Collect the statistics of the last search, which returned result for request
+    SearchStats statsOf(SearchRequest request, SearchResult result, long wallNanos, long cpuNanos) {
+        if(this.unreachable) {
+            return new SearchStats(0, 0, 0, 0, wallNanos, cpuNanos);
+        }
+        if(request.getAlgorithm() == Graph.BIDIRECTIONAL_A_STAR || request.getAlgorithm() == Graph.BIDIRECTIONAL_DIJKSTRA) {
+            return this.bidirectional.statsOf(result, wallNanos, cpuNanos);
+        }
+        if(request.isDeltaStepping()) {
+            return this.deltaStepping.statsOf(result, wallNanos, cpuNanos);
+        }
+        return new SearchStats(result.getNodesExpanded(), this.open.getAddCount(), this.open.getDecreaseKeyCount(),
+                this.open.getPeakSize(), wallNanos, cpuNanos);
+    }
+
+    //Check whether the request's components show that its goal can't be reached from its source
+    //A blocked source is still searched from, as searches step off it onto its walkable neighbours, so only a walkable
+    //source is checked
+    private boolean isUnreachable(GridMap map, SearchRequest request) {
+        ConnectedComponents components = request.getComponents();
+        if(components == null) {
+            return false;
+        }
+        if(components.getWidth() != this.width || components.getHeight() != this.height) {
+            throw new IllegalArgumentException("Components were built for a map of another size");
+        }
+        int sourceX = request.getSourceX();
+        int sourceY = request.getSourceY();
+        return map.isWalkable(sourceX, sourceY) &&
+                !components.isConnected(sourceX, sourceY, request.getGoalX(), request.getGoalY());
+    }
+
+    //Find a path that stays within the rectangle (minX, minY)-(maxX, maxY), which must hold the source and goal
+    SearchResult searchWithin(GridMap map, SearchRequest request, int minX, int minY, int maxX, int maxY) {
+        int goal = request.getGoalY()*this.width + request.getGoalX();
+        this.reset(request, this.openListFor(map, request));
+        int nodesExpanded = this.expand(map, request, goal, minX, minY, maxX, maxY);
+        return this.buildResult(goal, nodesExpanded, false);
+    }
+
+    //Find the distances from source to every cell in the rectangle (minX, minY)-(maxX, maxY) that can be reached
+    //without leaving it. Read them back with regionDistance
+    void searchRegion(GridMap map, int source, int minX, int minY, int maxX, int maxY, int movement) {
+        int x = source % this.width;
+        int y = source / this.width;
+        SearchRequest request = new SearchRequest(x, y, x, y, Graph.DIJKSTRA).withMovement(movement);
+        this.reset(request, this.openListFor(map, request));
+        this.expand(map, request, -1, minX, minY, maxX, maxY);
+    }
+
+    //Distance from the source of the last searchRegion to a cell, or -1 if the cell wasn't reached
+    int regionDistance(int cell) {
+        return this.closed.get(cell) ? this.distances[cell] : -1;
+    }
+
+    //Run the main search loop until the goal is closed (or, if goal is -1, until the open list runs dry), only
+    //moving within the rectangle (minX, minY)-(maxX, maxY). Returns the number of nodes expanded
+    private int expand(GridMap map, SearchRequest request, int goal, int minX, int minY, int maxX, int maxY) {
+        int goalX = request.getGoalX();
+        int goalY = request.getGoalY();
+        boolean aStar = request.getAlgorithm() == Graph.A_STAR;
+        Heuristic heuristic = request.getHeuristic();
+        int movement = request.getMovement();
+        int allowedMoves = Movement.allowedMoves(movement);
+        boolean weighted = map.getMaxCost() > 1;
+        boolean recordVisited = request.isRecordVisited();
+        SearchObserver observer = request.getObserver();
+        int nodesExpanded = 0;
+
+        //Conduct search
+        while((goal == -1 || !this.closed.get(goal)) && !this.open.isEmpty()) {
+            //Poll best node off the open list
+            int curNode = this.open.poll();
+            this.closed.set(curNode);
+            nodesExpanded++;
+            if(recordVisited) {
+                this.recordVisited(curNode);
+            }
+            int x = curNode % this.width;
+            int y = curNode / this.width;
+            if(observer != null) {
+                observer.nodeExpanded(x, y);
+            }
+
+            //Check all of the node's neighbours. Diagonal moves may not cut the corner of a wall
+            int moves = Neighbours.legalMoves(map.neighbourBits(x, y)) & allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int nx = x + Neighbours.DX[d];
+                int ny = y + Neighbours.DY[d];
+                if(nx < minX || nx > maxX || ny < minY || ny > maxY) {
+                    continue;
+                }
+                int estimate = 0;
+                if(aStar) {
+                    estimate = heuristic != null ? heuristic.estimate(nx, ny, goalX, goalY)
+                            : Movement.heuristic(movement, goalX - nx, goalY - ny);
+                }
+                //Every cell costs at least 1, so the heuristic stays admissible on maps with costs
+                int cost = Movement.cost(movement, d) * (weighted ? map.getCost(nx, ny) : 1);
+                this.relax(curNode, ny*this.width + nx, this.distances[curNode] + cost, estimate);
+            }
+        }
+        return nodesExpanded;
+    }
+
+    //Find a path using Jump Point Search, which only expands the jump points of the grid
+    //Only the octile movement mode is supported, and the returned path is expanded back to every cell between the jump points
+    private SearchResult searchJumpPoints(GridMap map, SearchRequest request) {
+        int goalX = request.getGoalX();
+        int goalY = request.getGoalY();
+        int goal = goalY*this.width + goalX;
+        Heuristic heuristic = request.getHeuristic();
+        boolean recordVisited = request.isRecordVisited();
+        SearchObserver observer = request.getObserver();
+        int nodesExpanded = 0;
+        this.reset(request, this.heap);
+
+        while(!this.closed.get(goal) && !this.open.isEmpty()) {
+            int curNode = this.open.poll();
+            this.closed.set(curNode);
+            nodesExpanded++;
+            if(recordVisited) {
+                this.recordVisited(curNode);
+            }
+            int x = curNode % this.width;
+            int y = curNode / this.width;
+            if(observer != null) {
+                observer.nodeExpanded(x, y);
+            }
+
+            //Jump in every direction that survives pruning, given the direction we arrived from
+            int dx = 0;
+            int dy = 0;
+            if(this.parent[curNode] != -1) {
+                dx = Integer.signum(x - this.parent[curNode] % this.width);
+                dy = Integer.signum(y - this.parent[curNode] / this.width);
+            }
+            int directions = JumpPoints.prunedDirections(map, x, y, dx, dy);
+            while(directions != 0) {
+                int d = Integer.numberOfTrailingZeros(directions);
+                directions &= directions - 1;
+                int jumpPoint = JumpPoints.jump(map, x, y, Neighbours.DX[d], Neighbours.DY[d], goalX, goalY);
+                if(jumpPoint == -1) {
+                    continue;
+                }
+                int jx = jumpPoint % this.width;
+                int jy = jumpPoint / this.width;
+                this.relax(curNode, jumpPoint, this.distances[curNode] + Movement.heuristic(Graph.OCTILE, jx - x, jy - y),
+                        heuristic != null ? heuristic.estimate(jx, jy, goalX, goalY)
+                                : Movement.heuristic(Graph.OCTILE, goalX - jx, goalY - jy));
+            }
+        }
+        return this.buildResult(goal, nodesExpanded, true);
+    }
+
+    //Find an any-angle path with Theta*, which lets a node take its parent's parent as its own parent whenever the two
+    //are in line of sight, so parent links become straight legs of any angle instead of single moves
+    //Lazy Theta* assumes the line of sight when a node is reached, and only checks it once the node is expanded, falling
+    //back to the best expanded neighbour if it fails. That is one line check per expansion instead of one per neighbour
+    private SearchResult searchAnyAngle(GridMap map, SearchRequest request, boolean lazy) {
+        int goalX = request.getGoalX();
+        int goalY = request.getGoalY();
+        int goal = goalY*this.width + goalX;
+        int allowedMoves = Movement.allowedMoves(request.getMovement());
+        boolean recordVisited = request.isRecordVisited();
+        SearchObserver observer = request.getObserver();
+        int nodesExpanded = 0;
+        this.reset(request, this.heap);
+
+        while(!this.closed.get(goal) && !this.open.isEmpty()) {
+            int curNode = this.open.poll();
+            this.closed.set(curNode);
+            nodesExpanded++;
+            if(recordVisited) {
+                this.recordVisited(curNode);
+            }
+            int x = curNode % this.width;
+            int y = curNode / this.width;
+            if(observer != null) {
+                observer.nodeExpanded(x, y);
+            }
+            int moves = Neighbours.legalMoves(map.neighbourBits(x, y)) & allowedMoves;
+            int grandparent = this.parent[curNode];
+            if(lazy && grandparent != -1 &&
+                    !LineOfSight.isClear(map, grandparent % this.width, grandparent / this.width, x, y)) {
+                //The assumed line of sight is blocked, so come from the best expanded neighbour instead
+                this.distances[curNode] = Integer.MAX_VALUE;
+                for(int m=moves; m!=0; m&=m-1) {
+                    int d = Integer.numberOfTrailingZeros(m);
+                    int n = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+                    int distance = this.distances[n] + Movement.cost(Graph.OCTILE, d);
+                    if(this.closed.get(n) && distance < this.distances[curNode]) {
+                        this.distances[curNode] = distance;
+                        this.parent[curNode] = n;
+                    }
+                }
+                grandparent = this.parent[curNode];
+            }
+
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int nx = x + Neighbours.DX[d];
+                int ny = y + Neighbours.DY[d];
+                int n = ny*this.width + nx;
+                if(this.closed.get(n)) {
+                    continue;
+                }
+                //Always the straight-line distance: a request's heuristic bounds octile costs, which can be more than
+                //the straight legs taken here
+                int estimate = Movement.euclidean(goalX - nx, goalY - ny);
+                //Go straight from the parent if it can see n (Lazy Theta* takes that for granted until n is expanded)
+                if(grandparent != -1 && (lazy ||
+                        LineOfSight.isClear(map, grandparent % this.width, grandparent / this.width, nx, ny))) {
+                    int distance = this.distances[grandparent] +
+                            Movement.euclidean(nx - grandparent % this.width, ny - grandparent / this.width);
+                    this.relax(grandparent, n, distance, estimate);
+                }
+                else {
+                    this.relax(curNode, n, this.distances[curNode] + Movement.cost(Graph.OCTILE, d), estimate);
+                }
+            }
+        }
+        return this.buildResult(goal, nodesExpanded, false);
+    }
+
+    //Run Dijkstra's algorithm from every walkable goal at once over the whole map, filling in each cell's distance to its nearest
+    //goal (Integer.MAX_VALUE if none can be reached) and the direction of its next step towards that goal (-1 on the
+    //goals themselves and on unreachable cells). Returns the number of nodes expanded
+    int fillDistanceField(GridMap map, int[] goals, int movement, int[] fieldDistances, byte[] flow) {
+        Arrays.fill(fieldDistances, Integer.MAX_VALUE);
+        Arrays.fill(flow, (byte)-1);
+        this.open = this.bucketsFor(map, movement);
+        this.open.clear();
+        this.closed.clear();
+        for(int goal : goals) {
+            if(map.isWalkable(goal % this.width, goal / this.width) && !this.open.contains(goal)) {
+                fieldDistances[goal] = 0;
+                this.open.add(goal, 0);
+            }
+        }
+        int allowedMoves = Movement.allowedMoves(movement);
+        boolean weighted = map.getMaxCost() > 1;
+        int nodesExpanded = 0;
+
+        while(!this.open.isEmpty()) {
+            int curNode = this.open.poll();
+            this.closed.set(curNode);
+            nodesExpanded++;
+            int x = curNode % this.width;
+            int y = curNode / this.width;
+            int moves = Neighbours.legalMoves(map.neighbourBits(x, y)) & allowedMoves;
+            //The field grows backwards from the goals, so the step from n enters curNode and pays curNode's cost
+            int weight = weighted ? map.getCost(x, y) : 1;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int n = (y + Neighbours.DY[d])*this.width + x + Neighbours.DX[d];
+                int distance = fieldDistances[curNode] + Movement.cost(movement, d)*weight;
+                if(this.closed.get(n) || distance >= fieldDistances[n]) {
+                    continue;
+                }
+                //Moves are symmetric, so the way back from n is the opposite of the move that reached it
+                fieldDistances[n] = distance;
+                flow[n] = (byte)Neighbours.OPPOSITE[d];
+                if(this.open.contains(n)) {
+                    this.open.decreaseKey(n, distance);
+                }
+                else {
+                    this.open.add(n, distance);
+                }
+            }
+        }
+        return nodesExpanded;
+    }
+
+    //Open list for a search of the map: a bucket queue for Dijkstra's algorithm, and the heap otherwise
+    //A* keys aren't bucketed, as the heuristic can move them further above the smallest key than any single move cost
+    private OpenList openListFor(GridMap map, SearchRequest request) {
+        if(request.getAlgorithm() == Graph.DIJKSTRA) {
+            return this.bucketsFor(map, request.getMovement());
+        }
+        return this.heap;
+    }
+
+    //Return the bucket queue, replacing it if it can't span the largest move cost of the map
+    private BucketQueue bucketsFor(GridMap map, int movement) {
+        //Direction 4 is diagonal, which is never cheaper than an orthogonal move
+        int span = Movement.cost(movement, 4) * map.getMaxCost();
+        if(this.buckets == null || this.buckets.getSpan() < span) {
+            this.buckets = new BucketQueue(this.width*this.height, span);
+        }
+        return this.buckets;
+    }
+
+    //Clear state left over from the previous query, and seed the open list (which becomes the engine's open list)
+    //with the request's source
+    private void reset(SearchRequest request, OpenList open) {
+        int source = request.getSourceY()*this.width + request.getSourceX();
+        this.open = open;
+        this.open.clear();
+        this.closed.clear();
+        this.visitedCount = 0;
+        this.distances[source] = 0;
+        this.parent[source] = -1;
+        this.open.add(source, 0);
+    }
+
+    //Record a path to n through node if n is unvisited, and the path is shorter than what currently exists
+    private void relax(int node, int n, int distance, int heuristic) {
+        if(this.closed.get(n)) {
+            return;
+        }
+        boolean queued = this.open.contains(n);
+        if(queued && distance >= this.distances[n]) {
+            return;
+        }
+        this.distances[n] = distance;
+        this.parent[n] = node;
+        if(queued) {
+            this.open.decreaseKey(n, distance + heuristic);
+        }
+        else {
+            this.open.add(n, distance + heuristic);
+        }
+    }
+
+    //Package up the outcome of the search. If interpolate is set, parent links may span several cells in a
+    //straight or diagonal line, and the cells in between are filled in
+    private SearchResult buildResult(int goal, int nodesExpanded, boolean interpolate) {
+        int[] visitedNodes = Arrays.copyOf(this.visited, this.visitedCount);
+        if(!this.closed.get(goal)) {
+            return new SearchResult(this.width, new int[0], visitedNodes, -1, nodesExpanded);
+        }
+
+        //Now, calculate final path by walking the parent links back from the goal
+        int length = 1;
+        for(int curNode = goal; this.parent[curNode] != -1; curNode = this.parent[curNode]) {
+            length += interpolate ? this.cellsBetween(this.parent[curNode], curNode) : 1;
+        }
+        int[] path = new int[length];
+        path[--length] = goal;
+        for(int curNode = goal; this.parent[curNode] != -1; curNode = this.parent[curNode]) {
+            int prev = this.parent[curNode];
+            int steps = interpolate ? this.cellsBetween(prev, curNode) : 1;
+            int step = (curNode - prev) / steps;
+            for(int i=steps-1; i>=0; i--) {
+                path[--length] = prev + i*step;
+            }
+        }
+        return new SearchResult(this.width, path, visitedNodes, this.distances[goal], nodesExpanded);
+    }
+
+    //Send the path of a finished search to its observer, then tell it the search is over
+    private void reportPath(SearchObserver observer, SearchResult result) {
+        for(int i=0; i<result.getPathLength(); i++) {
+            observer.pathCell(result.getPathX(i), result.getPathY(i));
+        }
+        observer.searchFinished(result.isFound());
+    }
+
+    //Number of single moves needed to go from one cell to another along a straight or diagonal line
+    private int cellsBetween(int from, int to) {
+        return Math.max(Math.abs(to % this.width - from % this.width), Math.abs(to / this.width - from / this.width));
+    }
+
+    //Append a node to the visited list, growing it if needed
+    private void recordVisited(int node) {
+        if(this.visitedCount == this.visited.length) {
+            this.visited = Arrays.copyOf(this.visited, this.visitedCount*2);
+        }
+        this.visited[this.visitedCount++] = node;
+    }
+
+    //Throw an exception if (x, y) does not lie on the grid
+    private void checkOnMap(int x, int y) {
+        if(x<0 || x>=this.width || y<0 || y>=this.height) {
+            throw new IllegalArgumentException("(" + x + "," + y + ") is not on the map");
+        }
+    }
+}
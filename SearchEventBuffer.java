@@ -0,0 +1,118 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//Bounded ring buffer that passes a search's progress from the searching thread to one consumer thread
+//Every event is packed into a single long, so the buffer is one primitive array whose size is fixed up front. When it is
+//full the search waits for the consumer to catch up, so memory stays bounded however large the search, and the
+//consumer can start on the first expansions while the search is still running
+//Exactly one thread may search into the buffer, and exactly one thread may poll it
+//Packing: the kind of event in bits 62-63, x in bits 31-61, and y in bits 0-30
+public final class SearchEventBuffer implements SearchObserver {
+
+    //Kinds of events
+    public static final int EXPANDED = 0;
+    public static final int PATH = 1;
+    public static final int FINISHED = 2;
+
+    //Returned by poll when no event is waiting. Its kind bits (3) never occur in a real event
+    public static final long EMPTY = -1L;
+
+    //How long the searching thread sleeps between checks while the buffer is full
+    private static final long FULL_WAIT_NANOS = 100000;
+
+    private final long[] events;
+    private final int mask;
+
+    //Number of events ever added and ever taken. Each is only written by one side, and read by the other
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private volatile boolean closed;
+
+    //Create a buffer holding at least capacity events
+    public SearchEventBuffer(int capacity) {
+        if(capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+        this.events = new long[size];
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void nodeExpanded(int x, int y) {
+        this.offer(pack(EXPANDED, x, y));
+    }
+
+    @Override
+    public void pathCell(int x, int y) {
+        this.offer(pack(PATH, x, y));
+    }
+
+    //Sent as a FINISHED event, with x set to 1 if a path was found and 0 if not
+    @Override
+    public void searchFinished(boolean found) {
+        this.offer(pack(FINISHED, found ? 1 : 0, 0));
+    }
+
+    //Take the oldest event, or return EMPTY if there is none yet
+    public long poll() {
+        long head = this.head.get();
+        if(head == this.tail.get()) {
+            return EMPTY;
+        }
+        long event = this.events[(int)head & this.mask];
+        this.head.lazySet(head + 1);
+        return event;
+    }
+
+    //Stop accepting events. A search still sending events is cancelled by a CancellationException from its observer
+    //calls, which Graph.findPath passes on to its caller
+    public void close() {
+        this.closed = true;
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    public int getCapacity() {
+        return this.events.length;
+    }
+
+    public static int kind(long event) {
+        return (int)(event >>> 62);
+    }
+
+    public static int x(long event) {
+        return (int)(event >>> 31) & 0x7FFFFFFF;
+    }
+
+    public static int y(long event) {
+        return (int)event & 0x7FFFFFFF;
+    }
+
+    private static long pack(int kind, int x, int y) {
+        return (long)kind << 62 | (long)x << 31 | y;
+    }
+
+    //Add an event, waiting while the buffer is full
+    private void offer(long event) {
+        long tail = this.tail.get();
+        while(tail - this.head.get() == this.events.length) {
+            if(this.closed) {
+                throw new CancellationException("Search event buffer closed");
+            }
+            LockSupport.parkNanos(FULL_WAIT_NANOS);
+        }
+        if(this.closed) {
+            throw new CancellationException("Search event buffer closed");
+        }
+        this.events[(int)tail & this.mask] = event;
+        this.tail.lazySet(tail + 1);
+    }
+}
@@ -0,0 +1,7 @@
+//Receives the cost of every query run through Graph.findPath, once it is installed with Graph.setSearchListener
+//It is called on the thread that ran the query, right after the query, so it must be thread-safe and quick
+public interface SearchListener {
+
+    //A query finished with the given result and statistics
+    void searchCompleted(SearchRequest request, SearchResult result, SearchStats stats);
+}
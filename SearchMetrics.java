@@ -0,0 +1,160 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//Search listener that keeps running totals and histograms of query costs, and publishes them through JMX
+//Typical use:
+//    SearchMetrics metrics = new SearchMetrics();
+//    metrics.register();
+//    Graph.setSearchListener(metrics);
+//Recording is lock-free, so any number of searching threads can share one instance
+public class SearchMetrics implements SearchListener, SearchMetricsMBean {
+
+    //Name the metrics are registered under by register()
+    public static final String DEFAULT_NAME = "pathfinding:type=SearchMetrics";
+
+    private final AtomicLong found = new AtomicLong();
+    private final AtomicLong pushed = new AtomicLong();
+    private final AtomicLong decreaseKeys = new AtomicLong();
+    private final Histogram expanded = new Histogram();
+    private final Histogram peakOpenSize = new Histogram();
+    private final Histogram wallNanos = new Histogram();
+    private final Histogram cpuNanos = new Histogram();
+
+    @Override
+    public void searchCompleted(SearchRequest request, SearchResult result, SearchStats stats) {
+        if(result.isFound()) {
+            this.found.incrementAndGet();
+        }
+        this.pushed.addAndGet(stats.getNodesPushed());
+        this.decreaseKeys.addAndGet(stats.getDecreaseKeys());
+        this.expanded.record(stats.getNodesExpanded());
+        this.peakOpenSize.record(stats.getPeakOpenSize());
+        this.wallNanos.record(stats.getWallNanos());
+        this.cpuNanos.record(stats.getCpuNanos());
+    }
+
+    //Register these metrics with the platform MBean server under DEFAULT_NAME
+    public ObjectName register() throws JMException {
+        return this.register(DEFAULT_NAME);
+    }
+
+    //Register these metrics with the platform MBean server under the given name
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    //Remove these metrics from the platform MBean server
+    public void unregister(ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+
+    @Override
+    public long getQueryCount() {
+        return this.expanded.getCount();
+    }
+
+    @Override
+    public long getFoundCount() {
+        return this.found.get();
+    }
+
+    @Override
+    public long getNodesExpandedTotal() {
+        return this.expanded.getSum();
+    }
+
+    @Override
+    public double getNodesExpandedMean() {
+        return this.expanded.getMean();
+    }
+
+    @Override
+    public long getNodesExpandedP50() {
+        return this.expanded.getPercentile(0.5);
+    }
+
+    @Override
+    public long getNodesExpandedP99() {
+        return this.expanded.getPercentile(0.99);
+    }
+
+    @Override
+    public long getNodesExpandedMax() {
+        return this.expanded.getMax();
+    }
+
+    @Override
+    public long getNodesPushedTotal() {
+        return this.pushed.get();
+    }
+
+    @Override
+    public long getDecreaseKeysTotal() {
+        return this.decreaseKeys.get();
+    }
+
+    @Override
+    public long getPeakOpenSizeP99() {
+        return this.peakOpenSize.getPercentile(0.99);
+    }
+
+    @Override
+    public long getPeakOpenSizeMax() {
+        return this.peakOpenSize.getMax();
+    }
+
+    @Override
+    public double getWallMicrosMean() {
+        return this.wallNanos.getMean() / 1000;
+    }
+
+    @Override
+    public long getWallMicrosP50() {
+        return this.wallNanos.getPercentile(0.5) / 1000;
+    }
+
+    @Override
+    public long getWallMicrosP99() {
+        return this.wallNanos.getPercentile(0.99) / 1000;
+    }
+
+    @Override
+    public long getWallMicrosMax() {
+        return this.wallNanos.getMax() / 1000;
+    }
+
+    @Override
+    public double getCpuMicrosMean() {
+        return this.cpuNanos.getMean() / 1000;
+    }
+
+    @Override
+    public long getCpuMicrosP99() {
+        return this.cpuNanos.getPercentile(0.99) / 1000;
+    }
+
+    //Bucket counts of the nodes expanded per query, where bucket b counts values from 2^(b-1) up to 2^b (see Histogram)
+    public long[] getNodesExpandedHistogram() {
+        return this.expanded.getBuckets();
+    }
+
+    //Bucket counts of the wall-clock nanoseconds per query
+    public long[] getWallNanosHistogram() {
+        return this.wallNanos.getBuckets();
+    }
+
+    @Override
+    public void reset() {
+        this.found.set(0);
+        this.pushed.set(0);
+        this.decreaseKeys.set(0);
+        this.expanded.reset();
+        this.peakOpenSize.reset();
+        this.wallNanos.reset();
+        this.cpuNanos.reset();
+    }
+}
@@ -0,0 +1,41 @@
+//Management interface of SearchMetrics, as seen through JMX (for example in JConsole or VisualVM)
+//Percentiles come from power-of-two histograms, so they are upper bounds within a factor of 2 of the real value
+public interface SearchMetricsMBean {
+
+    long getQueryCount();
+
+    long getFoundCount();
+
+    long getNodesExpandedTotal();
+
+    double getNodesExpandedMean();
+
+    long getNodesExpandedP50();
+
+    long getNodesExpandedP99();
+
+    long getNodesExpandedMax();
+
+    long getNodesPushedTotal();
+
+    long getDecreaseKeysTotal();
+
+    long getPeakOpenSizeP99();
+
+    long getPeakOpenSizeMax();
+
+    double getWallMicrosMean();
+
+    long getWallMicrosP50();
+
+    long getWallMicrosP99();
+
+    long getWallMicrosMax();
+
+    double getCpuMicrosMean();
+
+    long getCpuMicrosP99();
+
+    //Forget every query recorded so far
+    void reset();
+}
@@ -0,0 +1,16 @@
+//Receives a search's progress as it happens, instead of as lists in the SearchResult (see SearchRequest.withObserver)
+//Expansions are reported in order while the search runs. Once it ends, the path follows cell by cell from the source
+//to the goal, and then searchFinished. All calls come from the thread running the search
+public interface SearchObserver {
+
+    //A node was taken off the open list
+    void nodeExpanded(int x, int y);
+
+    //The next cell of the path, starting with the source
+    default void pathCell(int x, int y) {
+    }
+
+    //The search ended, after the last path cell if a path was found
+    default void searchFinished(boolean found) {
+    }
+}
@@ -0,0 +1,162 @@
+//Immutable description of a single path query: where to start, where to go, which algorithm to use and how to move
+//Requests carry no mutable state, so the same request can be shared between threads and reused freely
+public final class SearchRequest {
+
+    private final int sourceX;
+    private final int sourceY;
+    private final int goalX;
+    private final int goalY;
+    private final int algorithm;
+    private final int movement;
+    private final boolean recordVisited;
+    private final boolean parallelFrontiers;
+    private final boolean deltaStepping;
+    private final Heuristic heuristic;
+    private final SearchObserver observer;
+    private final ConnectedComponents components;
+
+    //Create a request using the octile movement mode
+    public SearchRequest(int sourceX, int sourceY, int goalX, int goalY, int algorithm) {
+        this(sourceX, sourceY, goalX, goalY, algorithm, Graph.OCTILE, false, false, false, null, null, null);
+    }
+
+    private SearchRequest(int sourceX, int sourceY, int goalX, int goalY, int algorithm, int movement, boolean recordVisited,
+            boolean parallelFrontiers, boolean deltaStepping, Heuristic heuristic, SearchObserver observer,
+            ConnectedComponents components) {
+        if(algorithm < Graph.A_STAR || algorithm > Graph.LAZY_THETA_STAR) {
+            throw new IllegalArgumentException("Unknown algorithm " + algorithm);
+        }
+        if(!Movement.isValid(movement)) {
+            throw new IllegalArgumentException("Unknown movement mode " + movement);
+        }
+        if(algorithm == Graph.JUMP_POINT && movement != Graph.OCTILE) {
+            throw new IllegalArgumentException("Jump Point Search only supports the octile movement mode");
+        }
+        if((algorithm == Graph.THETA_STAR || algorithm == Graph.LAZY_THETA_STAR) && movement != Graph.OCTILE) {
+            throw new IllegalArgumentException("Any-angle searches only support the octile movement mode");
+        }
+        if(parallelFrontiers && algorithm != Graph.BIDIRECTIONAL_A_STAR && algorithm != Graph.BIDIRECTIONAL_DIJKSTRA) {
+            throw new IllegalArgumentException("Parallel frontiers need a bidirectional algorithm");
+        }
+        if(parallelFrontiers && observer != null) {
+            throw new IllegalArgumentException("Observers can't follow a search with parallel frontiers");
+        }
+        if(deltaStepping && algorithm != Graph.DIJKSTRA) {
+            throw new IllegalArgumentException("Delta-stepping only runs Dijkstra's algorithm");
+        }
+        if(deltaStepping && (observer != null || recordVisited)) {
+            throw new IllegalArgumentException("Delta-stepping expands cells in no order that can be observed");
+        }
+        this.sourceX = sourceX;
+        this.sourceY = sourceY;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.algorithm = algorithm;
+        this.movement = movement;
+        this.recordVisited = recordVisited;
+        this.parallelFrontiers = parallelFrontiers;
+        this.deltaStepping = deltaStepping;
+        this.heuristic = heuristic;
+        this.observer = observer;
+        this.components = components;
+    }
+
+    //Return a copy of this request that uses a different movement mode (Graph.FOUR_CONNECTED, OCTILE or CHEBYSHEV)
+    public SearchRequest withMovement(int movement) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, movement,
+                this.recordVisited, this.parallelFrontiers, this.deltaStepping, this.heuristic, this.observer, this.components);
+    }
+
+    //Return a copy of this request that also records the order in which nodes were visited
+    public SearchRequest withRecordVisited(boolean recordVisited) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, this.movement,
+                recordVisited, this.parallelFrontiers, this.deltaStepping, this.heuristic, this.observer, this.components);
+    }
+
+    //Return a copy of this bidirectional request that grows its two frontiers on separate threads
+    public SearchRequest withParallelFrontiers(boolean parallelFrontiers) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, this.movement,
+                this.recordVisited, parallelFrontiers, this.deltaStepping, this.heuristic, this.observer, this.components);
+    }
+
+    //Return a copy of this Graph.DIJKSTRA request that expands its cells in parallel on the common fork/join pool, with
+    //delta-stepping. It finds paths of the same cost, and pays off on long queries over large maps
+    public SearchRequest withDeltaStepping(boolean deltaStepping) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, this.movement,
+                this.recordVisited, this.parallelFrontiers, deltaStepping, this.heuristic, this.observer, this.components);
+    }
+
+    //Return a copy of this request whose A* searches (Graph.A_STAR, JUMP_POINT and BIDIRECTIONAL_A_STAR) use the given
+    //heuristic (such as Landmarks) instead of the movement mode's own. Passing null goes back to the movement mode's
+    //heuristic. Any-angle searches ignore it, as its bounds are for octile paths, not straight legs
+    public SearchRequest withHeuristic(Heuristic heuristic) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, this.movement,
+                this.recordVisited, this.parallelFrontiers, this.deltaStepping, heuristic, this.observer, this.components);
+    }
+
+    //Return a copy of this request that reports its expansions and path to an observer as the search runs. Unlike
+    //withRecordVisited, nothing is kept in the result, so the memory used doesn't grow with the search
+    public SearchRequest withObserver(SearchObserver observer) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, this.movement,
+                this.recordVisited, this.parallelFrontiers, this.deltaStepping, this.heuristic, observer, this.components);
+    }
+
+    //Return a copy of this request that first checks the source and goal are in the same component, so a goal that
+    //can't be reached is reported as not found without any search. The components must describe the walkability of the
+    //searched map (compare ConnectedComponents.getMapVersion with GridMap.getVersion where the map has a version)
+    public SearchRequest withComponents(ConnectedComponents components) {
+        return new SearchRequest(this.sourceX, this.sourceY, this.goalX, this.goalY, this.algorithm, this.movement,
+                this.recordVisited, this.parallelFrontiers, this.deltaStepping, this.heuristic, this.observer, components);
+    }
+
+    public int getSourceX() {
+        return this.sourceX;
+    }
+
+    public int getSourceY() {
+        return this.sourceY;
+    }
+
+    public int getGoalX() {
+        return this.goalX;
+    }
+
+    public int getGoalY() {
+        return this.goalY;
+    }
+
+    public int getAlgorithm() {
+        return this.algorithm;
+    }
+
+    public int getMovement() {
+        return this.movement;
+    }
+
+    public boolean isRecordVisited() {
+        return this.recordVisited;
+    }
+
+    public boolean isParallelFrontiers() {
+        return this.parallelFrontiers;
+    }
+
+    public boolean isDeltaStepping() {
+        return this.deltaStepping;
+    }
+
+    //Heuristic given with withHeuristic, or null if the movement mode's own is used
+    public Heuristic getHeuristic() {
+        return this.heuristic;
+    }
+
+    //Observer given with withObserver, or null
+    public SearchObserver getObserver() {
+        return this.observer;
+    }
+
+    //Components given with withComponents, or null
+    public ConnectedComponents getComponents() {
+        return this.components;
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+
+//Immutable outcome of a path query
+//Cells are stored as ids (y*width+x) in primitive arrays, and decoded to coordinates on demand
+public final class SearchResult {
+
+    private final int width;
+    private final int[] path;
+    private final int[] visited;
+    private final int cost;
+    private final int nodesExpanded;
+
+    //The arrays are taken over by the result, and must not be modified afterwards
+    SearchResult(int width, int[] path, int[] visited, int cost, int nodesExpanded) {
+        this.width = width;
+        this.path = path;
+        this.visited = visited;
+        this.cost = cost;
+        this.nodesExpanded = nodesExpanded;
+    }
+
+    //Check whether a path to the goal was found
+    public boolean isFound() {
+        return this.path.length > 0;
+    }
+
+    //Cost of the path in Movement.STRAIGHT_COST units per orthogonal move, or -1 if no path was found
+    public int getCost() {
+        return this.cost;
+    }
+
+    //Number of nodes taken off the open list during the search
+    public int getNodesExpanded() {
+        return this.nodesExpanded;
+    }
+
+    //Number of cells on the path, including both the source and the goal
+    //Any-angle paths (Graph.THETA_STAR, Graph.LAZY_THETA_STAR and Graph.smoothPath) only hold their turning points
+    public int getPathLength() {
+        return this.path.length;
+    }
+
+    public int getPathX(int i) {
+        return this.path[i] % this.width;
+    }
+
+    public int getPathY(int i) {
+        return this.path[i] / this.width;
+    }
+
+    //Number of visited cells recorded, which is zero unless the request asked for them
+    public int getVisitedCount() {
+        return this.visited.length;
+    }
+
+    public int getVisitedX(int i) {
+        return this.visited[i] % this.width;
+    }
+
+    public int getVisitedY(int i) {
+        return this.visited[i] / this.width;
+    }
+
+    //Return the path as a list of coordinate pairs, from source to goal
+    public ArrayList<int[]> getPathList() {
+        return toCoordinates(this.path, this.width);
+    }
+
+    //Return the visited cells as a list of coordinate pairs, in the order they were visited
+    public ArrayList<int[]> getVisitedList() {
+        return toCoordinates(this.visited, this.width);
+    }
+
+    //Path as cell ids. The array is shared, and must not be modified
+    int[] getPath() {
+        return this.path;
+    }
+
+    //Return a copy of this result with a different path and cost, keeping the visited cells and expansion count
+    SearchResult withPath(int[] path, int cost) {
+        return new SearchResult(this.width, path, this.visited, cost, this.nodesExpanded);
+    }
+
+    private static ArrayList<int[]> toCoordinates(int[] cells, int width) {
+        ArrayList<int[]> coordinates = new ArrayList<int[]>(cells.length);
+        for(int cell : cells) {
+            coordinates.add(new int[] {cell % width, cell / width});
+        }
+        return coordinates;
+    }
+}
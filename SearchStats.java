@@ -0,0 +1,55 @@
+//What a single path query cost, as reported to a SearchListener
+//The counts describe the open list: nodes pushed onto it, decrease-keys on nodes already in it, and the most nodes
+//it held at once. Bidirectional searches add up the counts of their two frontiers
+//Times are taken on the thread that ran the query, so CPU time leaves out the second thread of a bidirectional search
+//with parallel frontiers
+public final class SearchStats {
+
+    private final int nodesExpanded;
+    private final int nodesPushed;
+    private final int decreaseKeys;
+    private final int peakOpenSize;
+    private final long wallNanos;
+    private final long cpuNanos;
+
+    SearchStats(int nodesExpanded, int nodesPushed, int decreaseKeys, int peakOpenSize, long wallNanos, long cpuNanos) {
+        this.nodesExpanded = nodesExpanded;
+        this.nodesPushed = nodesPushed;
+        this.decreaseKeys = decreaseKeys;
+        this.peakOpenSize = peakOpenSize;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+    }
+
+    public int getNodesExpanded() {
+        return this.nodesExpanded;
+    }
+
+    public int getNodesPushed() {
+        return this.nodesPushed;
+    }
+
+    public int getDecreaseKeys() {
+        return this.decreaseKeys;
+    }
+
+    public int getPeakOpenSize() {
+        return this.peakOpenSize;
+    }
+
+    //Elapsed time of the query
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    //CPU time the query used, or -1 if the JVM can't measure it
+    public long getCpuNanos() {
+        return this.cpuNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "expanded=" + this.nodesExpanded + " pushed=" + this.nodesPushed + " decreaseKeys=" + this.decreaseKeys
+                + " peakOpen=" + this.peakOpenSize + " wall=" + this.wallNanos + "ns cpu=" + this.cpuNanos + "ns";
+    }
+}
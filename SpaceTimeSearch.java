@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+//A* over (cell, time) states for one agent of a CooperativePlanner, finding the cheapest way to spend the next
+//window steps while staying clear of the other agents' reservations (the windowed search of WHCA*)
+//Each step either waits in place or makes a legal move. Waiting costs a straight move, except on the goal (or when
+//the goal can't be reached at all), where it is free. The heuristic is the agent's true distance to its goal on the
+//empty map (see ResumableDistance), so the search ends the window where the rest of the way is cheapest
+//An agent moves at most one cell per step, so every state lies in the (2*window+1)^2 box around the start and is
+//indexed directly, time-major, in arrays allocated once per searching thread and reset with a stamp
+final class SpaceTimeSearch {
+
+    private final int window;
+    private final int side;
+    private final int[] costs;
+    private final int[] parents;
+    private final int[] stamps;
+    private int stamp;
+    private final IndexedMinHeap open;
+
+    SpaceTimeSearch(int window) {
+        this.window = window;
+        this.side = 2*window + 1;
+        int states = this.side*this.side*(window + 1);
+        this.costs = new int[states];
+        this.parents = new int[states];
+        this.stamps = new int[states];
+        this.open = new IndexedMinHeap(states);
+    }
+
+    //Find the cells of agent for times 0 to window, starting at its current cell, or return null if every way
+    //through the window is blocked. Reached and closed states are told apart by the sign of their stamp
+    int[] plan(GridMap map, int allowedMoves, int movement, ReservationTable table, int agent, int start, int goal,
+            ResumableDistance distances) {
+        int width = map.getWidth();
+        int startX = start % width;
+        int startY = start / width;
+        int startDistance = distances.distance(start);
+        boolean goalReachable = startDistance != -1;
+        if(++this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamps, 0);
+            this.stamp = 1;
+        }
+        this.open.clear();
+        int first = this.state(this.window, this.window, 0);
+        this.reach(first, 0, -1, goalReachable ? startDistance : 0);
+
+        while(!this.open.isEmpty()) {
+            int current = this.open.poll();
+            this.stamps[current] = -this.stamp;
+            int time = current / (this.side*this.side);
+            if(time == this.window) {
+                return this.path(current, startX, startY, width);
+            }
+            int x = startX - this.window + current % this.side;
+            int y = startY - this.window + (current / this.side) % this.side;
+            int cell = y*width + x;
+            int cost = this.costs[current];
+
+            //Wait in place
+            if(table.isMoveFree(cell, cell, time, agent)) {
+                int waitCost = cell == goal || !goalReachable ? 0 : Movement.STRAIGHT_COST;
+                this.relax(current + this.side*this.side, cost + waitCost, current, distances, cell, goalReachable);
+            }
+            int moves = Neighbours.legalMoves(map.neighbourBits(x, y)) & allowedMoves;
+            while(moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int nx = x + Neighbours.DX[d];
+                int ny = y + Neighbours.DY[d];
+                if(!table.isMoveFree(cell, ny*width + nx, time, agent)) {
+                    continue;
+                }
+                int next = this.state(nx - startX + this.window, ny - startY + this.window, time + 1);
+                this.relax(next, cost + Movement.cost(movement, d), current, distances, ny*width + nx, goalReachable);
+            }
+        }
+        return null;
+    }
+
+    //Offer a cheaper cost for a state that isn't closed yet
+    private void relax(int state, int cost, int parent, ResumableDistance distances, int cell, boolean goalReachable) {
+        if(this.stamps[state] == -this.stamp) {
+            return;
+        }
+        if(this.stamps[state] == this.stamp) {
+            if(cost < this.costs[state]) {
+                this.costs[state] = cost;
+                this.parents[state] = parent;
+                this.open.decreaseKey(state, priority(cost, this.estimate(distances, cell, goalReachable)));
+            }
+            return;
+        }
+        this.reach(state, cost, parent, this.estimate(distances, cell, goalReachable));
+    }
+
+    //Add a state seen for the first time to the open list
+    private void reach(int state, int cost, int parent, int estimate) {
+        this.stamps[state] = this.stamp;
+        this.costs[state] = cost;
+        this.parents[state] = parent;
+        this.open.add(state, priority(cost, estimate));
+    }
+
+    //Remaining distance to the goal, or 0 everywhere if the agent can't reach its goal at all
+    private int estimate(ResumableDistance distances, int cell, boolean goalReachable) {
+        return goalReachable ? distances.distance(cell) : 0;
+    }
+
+    //Order by f = cost + estimate, breaking ties towards the higher cost (the state nearer the end of the window)
+    private static long priority(int cost, int estimate) {
+        return ((long)cost + estimate) << 32 | (Integer.MAX_VALUE - cost);
+    }
+
+    //State of the box cell (boxX, boxY) at time
+    private int state(int boxX, int boxY, int time) {
+        return (time*this.side + boxY)*this.side + boxX;
+    }
+
+    //Cells of the states leading to the last one, one per time step
+    private int[] path(int last, int startX, int startY, int width) {
+        int[] cells = new int[this.window + 1];
+        for(int state = last; state != -1; state = this.parents[state]) {
+            int x = startX - this.window + state % this.side;
+            int y = startY - this.window + (state / this.side) % this.side;
+            cells[state / (this.side*this.side)] = y*width + x;
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,76 @@
+//Immutable grid map that adds a traversal cost to every cell of another map, such as 1 for road, 3 for mud and 8 for
+//shallow water
+//Entering a cell costs the movement mode's cost of the move times the cell's cost, so costs of 1 everywhere search
+//exactly like the map without costs. Costs are stored as one unsigned byte per cell in a flat array indexed by
+//y*width+x, and walkability is read from the wrapped map, so its fast row and neighbour reads are kept
+public class WeightedGridMap implements GridMap {
+
+    //Largest cost a cell can have
+    public static final int MAX_COST = 255;
+
+    private final GridMap map;
+    private final byte[] costs;
+    private final int maxCost;
+    private final long version = MapVersions.next();
+
+    //Add costs (each from 1 to MAX_COST) to a map. The cost array is copied, so later changes to it don't affect this map
+    //The wrapped map must not change while this map is in use
+    public WeightedGridMap(GridMap map, int[] costs) {
+        if(costs.length != map.getWidth()*map.getHeight()) {
+            throw new IllegalArgumentException("Expected " + (map.getWidth()*map.getHeight()) + " costs, got " +
+                    costs.length);
+        }
+        this.map = map;
+        this.costs = new byte[costs.length];
+        int maxCost = 1;
+        for(int i=0; i<costs.length; i++) {
+            if(costs[i] < 1 || costs[i] > MAX_COST) {
+                throw new IllegalArgumentException("Invalid cost " + costs[i] + " at cell " + i);
+            }
+            this.costs[i] = (byte)costs[i];
+            maxCost = Math.max(maxCost, costs[i]);
+        }
+        this.maxCost = maxCost;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.map.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.map.getHeight();
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean isWalkable(int x, int y) {
+        return this.map.isWalkable(x, y);
+    }
+
+    @Override
+    public long walkableBits(int x, int y) {
+        return this.map.walkableBits(x, y);
+    }
+
+    @Override
+    public int neighbourBits(int x, int y) {
+        return this.map.neighbourBits(x, y);
+    }
+
+    //Cost of entering (x, y), which must lie on the map
+    @Override
+    public int getCost(int x, int y) {
+        return this.costs[y*this.map.getWidth() + x] & 0xFF;
+    }
+
+    @Override
+    public int getMaxCost() {
+        return this.maxCost;
+    }
+}
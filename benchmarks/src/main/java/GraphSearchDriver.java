@@ -0,0 +1,81 @@
+import pathfinding.bench.SearchDriver;
+
+//Runs benchmark searches through Graph.findPath on a BitGridMap
+public class GraphSearchDriver implements SearchDriver {
+
+    //A* with landmark heuristics, which isn't a Graph algorithm of its own
+    private static final int ALT = -1;
+
+    //Query of a contraction hierarchy, compared against A* on the same map
+    private static final int CH = -2;
+
+    //Dijkstra's algorithm with delta-stepping, whose expansions are spread over the common fork/join pool
+    private static final int DELTA_STEPPING = -3;
+
+    //Number of landmarks built for ALT searches
+    private static final int LANDMARK_COUNT = 8;
+
+    private GridMap map;
+    private Landmarks landmarks;
+    private ContractionHierarchy hierarchy;
+
+    @Override
+    public void load(int width, int height, boolean[] walkable) {
+        this.map = BitGridMap.copyOf(new ArrayGridMap(width, height, walkable));
+    }
+
+    @Override
+    public int algorithm(String name) {
+        if(name.equals("A_STAR")) {
+            return Graph.A_STAR;
+        }
+        if(name.equals("DIJKSTRA")) {
+            return Graph.DIJKSTRA;
+        }
+        if(name.equals("JUMP_POINT")) {
+            return Graph.JUMP_POINT;
+        }
+        if(name.equals("BIDIRECTIONAL_A_STAR")) {
+            return Graph.BIDIRECTIONAL_A_STAR;
+        }
+        if(name.equals("BIDIRECTIONAL_DIJKSTRA")) {
+            return Graph.BIDIRECTIONAL_DIJKSTRA;
+        }
+        if(name.equals("THETA_STAR")) {
+            return Graph.THETA_STAR;
+        }
+        if(name.equals("LAZY_THETA_STAR")) {
+            return Graph.LAZY_THETA_STAR;
+        }
+        if(name.equals("ALT")) {
+            //Preprocessing is part of the setup, not of the measured searches
+            this.landmarks = Landmarks.build(this.map, Graph.OCTILE, LANDMARK_COUNT);
+            return ALT;
+        }
+        if(name.equals("CH")) {
+            this.hierarchy = ContractionHierarchy.build(this.map, Graph.OCTILE);
+            return CH;
+        }
+        if(name.equals("DELTA_STEPPING")) {
+            return DELTA_STEPPING;
+        }
+        throw new IllegalArgumentException("Unknown algorithm " + name);
+    }
+
+    @Override
+    public int search(int sourceX, int sourceY, int goalX, int goalY, int algorithm) {
+        if(algorithm == ALT) {
+            SearchRequest request = new SearchRequest(sourceX, sourceY, goalX, goalY, Graph.A_STAR).withHeuristic(this.landmarks);
+            return Graph.findPath(this.map, request).getNodesExpanded();
+        }
+        if(algorithm == CH) {
+            return this.hierarchy.findPath(sourceX, sourceY, goalX, goalY).getNodesExpanded();
+        }
+        if(algorithm == DELTA_STEPPING) {
+            SearchRequest request = new SearchRequest(sourceX, sourceY, goalX, goalY, Graph.DIJKSTRA).withDeltaStepping(true);
+            return Graph.findPath(this.map, request).getNodesExpanded();
+        }
+        SearchRequest request = new SearchRequest(sourceX, sourceY, goalX, goalY, algorithm);
+        return Graph.findPath(this.map, request).getNodesExpanded();
+    }
+}
@@ -0,0 +1,191 @@
+package pathfinding.bench;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+//Deterministic map generators for the benchmarks, so every run (and every commit) searches exactly the same maps
+public final class Maps {
+
+    //Map types understood by generate
+    public static final String OPEN = "OPEN";
+    public static final String RANDOM = "RANDOM";
+    public static final String MAZE = "MAZE";
+    public static final String ROOMS = "ROOMS";
+
+    //Share of cells turned into walls on RANDOM maps
+    private static final double RANDOM_WALL_RATIO = 0.3;
+
+    //Side of a room (including its walls) on ROOMS maps
+    private static final int ROOM_SIZE = 16;
+
+    private Maps() {
+    }
+
+    //A generated map together with a fixed list of queries, stored as (sourceX, sourceY, goalX, goalY) quadruples
+    public static final class MapData {
+        public final int width;
+        public final int height;
+        public final boolean[] walkable;
+        public final int[] queries;
+
+        MapData(int width, int height, boolean[] walkable, int[] queries) {
+            this.width = width;
+            this.height = height;
+            this.walkable = walkable;
+            this.queries = queries;
+        }
+
+        public int queryCount() {
+            return this.queries.length / 4;
+        }
+    }
+
+    //Generate a size x size map of the given type, and queryCount queries between cells that are connected
+    public static MapData generate(String type, int size, int queryCount, long seed) {
+        Random random = new Random(seed);
+        boolean[] walkable;
+        if(type.equals(OPEN)) {
+            walkable = open(size);
+        }
+        else if(type.equals(RANDOM)) {
+            walkable = random(size, random);
+        }
+        else if(type.equals(MAZE)) {
+            walkable = maze(size, random);
+        }
+        else if(type.equals(ROOMS)) {
+            walkable = rooms(size, random);
+        }
+        else {
+            throw new IllegalArgumentException("Unknown map type " + type);
+        }
+        return new MapData(size, size, walkable, queries(size, walkable, queryCount, random));
+    }
+
+    private static boolean[] open(int size) {
+        boolean[] walkable = new boolean[size*size];
+        Arrays.fill(walkable, true);
+        return walkable;
+    }
+
+    private static boolean[] random(int size, Random random) {
+        boolean[] walkable = new boolean[size*size];
+        for(int i=0; i<walkable.length; i++) {
+            walkable[i] = random.nextDouble() >= RANDOM_WALL_RATIO;
+        }
+        return walkable;
+    }
+
+    //Perfect maze with corridors one cell wide, carved by a depth-first walk over the odd cells
+    private static boolean[] maze(int size, Random random) {
+        boolean[] walkable = new boolean[size*size];
+        int[] dx = {2, -2, 0, 0};
+        int[] dy = {0, 0, 2, -2};
+        ArrayDeque<Integer> stack = new ArrayDeque<Integer>();
+        walkable[size + 1] = true;
+        stack.push(size + 1);
+        while(!stack.isEmpty()) {
+            int cell = stack.peek();
+            int x = cell % size;
+            int y = cell / size;
+            //Pick a random unvisited cell two steps away, and knock down the wall in between
+            int start = random.nextInt(4);
+            boolean carved = false;
+            for(int i=0; i<4 && !carved; i++) {
+                int d = (start + i) % 4;
+                int nx = x + dx[d];
+                int ny = y + dy[d];
+                if(nx > 0 && nx < size-1 && ny > 0 && ny < size-1 && !walkable[ny*size + nx]) {
+                    walkable[(y + dy[d]/2)*size + x + dx[d]/2] = true;
+                    walkable[ny*size + nx] = true;
+                    stack.push(ny*size + nx);
+                    carved = true;
+                }
+            }
+            if(!carved) {
+                stack.pop();
+            }
+        }
+        return walkable;
+    }
+
+    //Square rooms separated by one-cell walls, with a door of random position and width in every wall
+    private static boolean[] rooms(int size, Random random) {
+        boolean[] walkable = open(size);
+        for(int i=0; i<size; i += ROOM_SIZE) {
+            for(int j=0; j<size; j++) {
+                walkable[i*size + j] = false;
+                walkable[j*size + i] = false;
+            }
+        }
+        for(int i=0; i<size; i += ROOM_SIZE) {
+            for(int j=0; j<size; j += ROOM_SIZE) {
+                int doorWidth = 1 + random.nextInt(3);
+                int horizontal = j + 1 + random.nextInt(ROOM_SIZE - 1 - doorWidth);
+                int vertical = j + 1 + random.nextInt(ROOM_SIZE - 1 - doorWidth);
+                for(int k=0; k<doorWidth; k++) {
+                    if(i > 0 && horizontal + k < size) {
+                        walkable[i*size + horizontal + k] = true;
+                    }
+                    if(i > 0 && vertical + k < size) {
+                        walkable[(vertical + k)*size + i] = true;
+                    }
+                }
+            }
+        }
+        return walkable;
+    }
+
+    //Pick random pairs of cells from the largest 4-connected region, so every query has a path in every movement mode
+    private static int[] queries(int size, boolean[] walkable, int queryCount, Random random) {
+        int[] component = new int[walkable.length];
+        int[] queue = new int[walkable.length];
+        int best = -1;
+        int bestSize = 0;
+        int label = 0;
+        for(int start=0; start<walkable.length; start++) {
+            if(!walkable[start] || component[start] != 0) {
+                continue;
+            }
+            label++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            component[start] = label;
+            while(head < tail) {
+                int cell = queue[head++];
+                int x = cell % size;
+                int y = cell / size;
+                int[] next = {x > 0 ? cell-1 : -1, x < size-1 ? cell+1 : -1, y > 0 ? cell-size : -1, y < size-1 ? cell+size : -1};
+                for(int n : next) {
+                    if(n != -1 && walkable[n] && component[n] == 0) {
+                        component[n] = label;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+            if(tail > bestSize) {
+                bestSize = tail;
+                best = label;
+            }
+        }
+        int[] cells = new int[bestSize];
+        int count = 0;
+        for(int i=0; i<component.length; i++) {
+            if(component[i] == best) {
+                cells[count++] = i;
+            }
+        }
+        int[] queries = new int[queryCount*4];
+        for(int q=0; q<queryCount; q++) {
+            int source = cells[random.nextInt(count)];
+            int goal = cells[random.nextInt(count)];
+            queries[q*4] = source % size;
+            queries[q*4 + 1] = source / size;
+            queries[q*4 + 2] = goal % size;
+            queries[q*4 + 3] = goal / size;
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,81 @@
+package pathfinding.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Throughput of single path queries through Graph.findPath
+//Each invocation runs the next query from a fixed list, on a generated map of the given type and size
+//Reported per benchmark: queries per second, and (as the nodesExpanded counter) nodes expanded per second
+//Run with "-prof gc" to also get the allocation rate, where gc.alloc.rate.norm is the bytes allocated per query:
+//expanding a node allocates nothing, so it should follow the length of the paths, not the nodes expanded
+//    mvn install && cd benchmarks && mvn package && java -jar target/benchmarks.jar SearchBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    //Number of queries generated per map, and the seed they (and the maps) are generated from
+    private static final int QUERY_COUNT = 64;
+    private static final long SEED = 42;
+
+    @Param({Maps.OPEN, Maps.RANDOM, Maps.MAZE, Maps.ROOMS})
+    public String mapType;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    //Contraction hierarchies ("CH") are left out by default, as building them for the larger open maps takes minutes.
+    //Compare them with A* by adding "-p algorithm=A_STAR,CH -p mapType=MAZE,ROOMS"
+    //Parallel Dijkstra ("DELTA_STEPPING") is left out too, as it only pays off with many cores. Compare it by adding
+    //"-p algorithm=DIJKSTRA,DELTA_STEPPING -p size=1024"
+    @Param({"A_STAR", "DIJKSTRA", "JUMP_POINT", "BIDIRECTIONAL_A_STAR", "BIDIRECTIONAL_DIJKSTRA", "ALT",
+            "THETA_STAR", "LAZY_THETA_STAR"})
+    public String algorithm;
+
+    private SearchDriver driver;
+    private int algorithmId;
+    private int[] queries;
+    private int nextQuery;
+
+    //Counters reported alongside the throughput, as a rate per second
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long nodesExpanded;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Maps.MapData map = Maps.generate(this.mapType, this.size, QUERY_COUNT, SEED);
+        this.driver = SearchDriver.create();
+        this.driver.load(map.width, map.height, map.walkable);
+        this.algorithmId = this.driver.algorithm(this.algorithm);
+        this.queries = map.queries;
+        this.nextQuery = 0;
+    }
+
+    @Benchmark
+    public int search(Counters counters) {
+        int q = this.nextQuery;
+        this.nextQuery = (q + 4) % this.queries.length;
+        int expanded = this.driver.search(this.queries[q], this.queries[q+1], this.queries[q+2], this.queries[q+3], this.algorithmId);
+        counters.nodesExpanded += expanded;
+        return expanded;
+    }
+}
@@ -0,0 +1,26 @@
+package pathfinding.bench;
+
+//Bridge between the benchmarks and the project's search API
+//The project lives in the default package, which JMH benchmarks can't import from, so the benchmarks talk to it
+//through this interface. It is implemented by GraphSearchDriver, a default-package class loaded by name
+public interface SearchDriver {
+
+    //Load a map, with walkable[y*width+x] set for every walkable cell
+    void load(int width, int height, boolean[] walkable);
+
+    //Translate an algorithm name (the name of a Graph constant, such as A_STAR) to its value
+    int algorithm(String name);
+
+    //Run one search on the loaded map, and return the number of nodes it expanded
+    int search(int sourceX, int sourceY, int goalX, int goalY, int algorithm);
+
+    //Load the default implementation
+    static SearchDriver create() {
+        try {
+            return (SearchDriver)Class.forName("GraphSearchDriver").getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load GraphSearchDriver", e);
+        }
+    }
+}